@@ -0,0 +1,45 @@
+package com.jtulayan.chess.benchmark;
+
+import com.jtulayan.chess.Board;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for storing and restoring board states.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MementoBenchmark {
+    @Param({Positions.OPENING, Positions.MIDDLEGAME, Positions.ENDGAME})
+    public String fen;
+
+    private Board board;
+    private Board.Memento memento;
+
+    @Setup
+    public void setup() {
+        board = new Board();
+        memento = new Board.Memento(fen);
+        board.restore(memento);
+    }
+
+    @Benchmark
+    public Board.Memento createMemento() {
+        return board.createMemento();
+    }
+
+    @Benchmark
+    public Board restore() {
+        board.restore(memento);
+        return board;
+    }
+}
@@ -0,0 +1,110 @@
+package com.jtulayan.chess.benchmark;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.MoveGenerators;
+import com.jtulayan.chess.MoveList;
+import com.jtulayan.chess.Piece;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for generating and making moves.
+ *
+ * Each piece generator is run for every piece of that type belonging to the side to move.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MoveGenerationBenchmark {
+    @Param({Positions.OPENING, Positions.MIDDLEGAME, Positions.ENDGAME})
+    public String fen;
+
+    private Board board;
+    private final MoveList list = new MoveList();
+    private final MoveList moves = new MoveList();
+
+    @Setup
+    public void setup() {
+        board = new Board();
+        board.restore(new Board.Memento(fen));
+        board.listPossibleMoves(board.isWhiteTurn(), moves);
+    }
+
+    private long pieces(int type) {
+        return board.getBitboard(Piece.make(type, board.isWhiteTurn()));
+    }
+
+    @Benchmark
+    public MoveList listPossibleMoves() {
+        board.listPossibleMoves(board.isWhiteTurn(), list);
+        return list;
+    }
+
+    @Benchmark
+    public MoveList listKingMoves() {
+        list.clear();
+        for (long bb = pieces(Piece.KING); bb != 0L; bb &= bb - 1)
+            MoveGenerators.listKingMoves(board, Long.numberOfTrailingZeros(bb), list);
+        return list;
+    }
+
+    @Benchmark
+    public MoveList listQueenMoves() {
+        list.clear();
+        for (long bb = pieces(Piece.QUEEN); bb != 0L; bb &= bb - 1)
+            MoveGenerators.listQueenMoves(board, Long.numberOfTrailingZeros(bb), list);
+        return list;
+    }
+
+    @Benchmark
+    public MoveList listRookMoves() {
+        list.clear();
+        for (long bb = pieces(Piece.ROOK); bb != 0L; bb &= bb - 1)
+            MoveGenerators.listRookMoves(board, Long.numberOfTrailingZeros(bb), list);
+        return list;
+    }
+
+    @Benchmark
+    public MoveList listBishopMoves() {
+        list.clear();
+        for (long bb = pieces(Piece.BISHOP); bb != 0L; bb &= bb - 1)
+            MoveGenerators.listBishopMoves(board, Long.numberOfTrailingZeros(bb), list);
+        return list;
+    }
+
+    @Benchmark
+    public MoveList listKnightMoves() {
+        list.clear();
+        for (long bb = pieces(Piece.KNIGHT); bb != 0L; bb &= bb - 1)
+            MoveGenerators.listKnightMoves(board, Long.numberOfTrailingZeros(bb), list);
+        return list;
+    }
+
+    @Benchmark
+    public MoveList listPawnMoves() {
+        list.clear();
+        for (long bb = pieces(Piece.PAWN); bb != 0L; bb &= bb - 1)
+            MoveGenerators.listPawnMoves(board, Long.numberOfTrailingZeros(bb), list);
+        return list;
+    }
+
+    /**
+     * Makes and takes back every move of the position.
+     */
+    @Benchmark
+    public Board makeMove() {
+        for (int i = 0; i < moves.size(); i++) {
+            board.makeMove(moves.get(i));
+            board.unmakeMove(moves.get(i));
+        }
+        return board;
+    }
+}
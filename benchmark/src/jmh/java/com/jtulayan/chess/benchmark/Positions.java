@@ -0,0 +1,16 @@
+package com.jtulayan.chess.benchmark;
+
+/**
+ * FENs of the positions every benchmark runs against,
+ * covering the opening, middlegame and endgame.
+ */
+public final class Positions {
+    public static final String
+        OPENING = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+        MIDDLEGAME = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+        ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+
+    private Positions() {
+        // Never be able to construct this class, this is just a utility class.
+    }
+}
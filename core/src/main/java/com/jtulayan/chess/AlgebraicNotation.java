@@ -62,6 +62,125 @@ public final class AlgebraicNotation {
         return (long)Math.pow(2, getTileIndex(an));
     }
 
+    /**
+     * Finds the legal move matching a move in standard algebraic notation (SAN).
+     * @param b       the board to find the move on
+     * @param san     the move, such as "Nbd7", "exd6", "e8=Q+" or "O-O"
+     * @param scratch a list to generate candidate moves into
+     * @return the move, encoded as per {@link Move}
+     *
+     * @see #parseMove(Board, CharSequence, int, int, MoveList)
+     */
+    public static int parseMove(Board b, String san, MoveList scratch) {
+        return parseMove(b, san, 0, san.length(), scratch);
+    }
+
+    /**
+     * Finds the legal move matching a move in standard algebraic notation (SAN),
+     * read in place from part of a larger text.
+     *
+     * The moving piece, destination, promotion and any file or rank given to
+     * disambiguate narrow down the legal moves until exactly one is left.
+     * Check, mate and annotation marks are ignored, as is whether a capture is marked,
+     * and castles may be written with letter O or digit 0.
+     *
+     * @param b       the board to find the move on
+     * @param san     the text holding the move
+     * @param start   the index of the move's first character
+     * @param end     the index after the move's last character
+     * @param scratch a list to generate candidate moves into
+     * @return the move, encoded as per {@link Move}
+     */
+    public static int parseMove(Board b, CharSequence san, int start, int end, MoveList scratch) {
+        while (end > start && "+#!?".indexOf(san.charAt(end - 1)) >= 0)
+            end--;
+        if (end - start < 2)
+            throw new IllegalArgumentException("Invalid SAN move! Was " + san.subSequence(start, end));
+
+        boolean isWhite = b.isWhiteTurn();
+        char first = san.charAt(start);
+
+        if (first == 'O' || first == '0') {
+            int king = b.getKingTile(isWhite);
+            boolean isQueenside = end - start >= 5;
+
+            return findMove(b, san, start, end, scratch, 1L << king, isQueenside ? king - 2 : king + 2, Piece.EMPTY);
+        }
+
+        int type = Piece.PAWN;
+        int i = start;
+        if ("PNBRQK".indexOf(first) >= 0) {
+            type = Piece.fromChar(first);
+            i++;
+        }
+
+        int promotion = Piece.EMPTY;
+        if (type == Piece.PAWN && "NBRQ".indexOf(san.charAt(end - 1)) >= 0) {
+            promotion = Piece.fromChar(san.charAt(end - 1));
+            end--;
+            if (end > i && san.charAt(end - 1) == '=')
+                end--;
+        }
+
+        if (end - i < 2)
+            throw new IllegalArgumentException("Invalid SAN move! Was " + san.subSequence(start, end));
+
+        int to = tileIndex(san, end - 2, start, end);
+        long origins = b.getBitboard(Piece.make(type, isWhite));
+
+        // Anything between the piece and its destination narrows down where it came from
+        for (int j = i; j < end - 2; j++) {
+            char c = san.charAt(j);
+
+            if (c >= 'a' && c <= 'h')
+                origins &= 0x0101010101010101L << (c - 'a');
+            else if (c >= '1' && c <= '8')
+                origins &= 0xFFL << (8 * ('8' - c));
+            else if (c != 'x' && c != ':' && c != '-')
+                throw new IllegalArgumentException("Invalid SAN move! Was " + san.subSequence(start, end));
+        }
+
+        return findMove(b, san, start, end, scratch, origins, to, promotion);
+    }
+
+    /**
+     * Picks the only legal move from the given tiles to the destination.
+     */
+    private static int findMove(Board b, CharSequence san, int start, int end, MoveList scratch,
+                                long origins, int to, int promotion) {
+        scratch.clear();
+        MoveGenerators.listLegalMoves(b, scratch, MoveGenerators.GEN_ALL, origins);
+
+        int found = Move.NONE;
+        for (int i = 0; i < scratch.size(); i++) {
+            int move = scratch.get(i);
+
+            if (Move.getTo(move) != to)
+                continue;
+            if (Move.isPromotion(move) ? Move.getPromotionType(move) != promotion : promotion != Piece.EMPTY)
+                continue;
+            if (found != Move.NONE)
+                throw new IllegalArgumentException("Ambiguous SAN move! Was " + san.subSequence(start, end));
+
+            found = move;
+        }
+
+        if (found == Move.NONE)
+            throw new IllegalArgumentException("Illegal SAN move! Was " + san.subSequence(start, end));
+
+        return found;
+    }
+
+    private static int tileIndex(CharSequence san, int i, int start, int end) {
+        char file = san.charAt(i);
+        char rank = san.charAt(i + 1);
+
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8')
+            throw new IllegalArgumentException("Invalid SAN destination! Was " + san.subSequence(start, end));
+
+        return ('8' - rank) * 8 + (file - 'a');
+    }
+
     private AlgebraicNotation() {
         // Never be able to construct this class, this is just a utility class.
     }
@@ -0,0 +1,279 @@
+package com.jtulayan.chess;
+
+/**
+ * Class containing precomputed attack tables, indexed by tile.
+ *
+ * Leaping pieces (knights, kings and pawns) have a single attack set per tile.
+ *
+ * Sliding pieces use magic bitboards: the occupancy of the tiles a slider
+ * could be blocked on is multiplied by a per-tile magic number, and the top
+ * bits of the product index a table of attack sets. The magics were found
+ * ahead of time by a random search, so only the tables are built when the
+ * class is initialized.
+ *
+ * @see <a href="https://www.chessprogramming.org/Magic_Bitboards">Magic Bitboards</a>
+ */
+public final class Attacks {
+    private static final int[][]
+        ROOK_DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}},
+        BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+
+    private static final int[][]
+        KNIGHT_OFFSETS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2}, {1, -2}, {1, 2}, {2, -1}, {2, 1}},
+        KING_OFFSETS = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}},
+        WHITE_PAWN_OFFSETS = {{-1, -1}, {-1, 1}},
+        BLACK_PAWN_OFFSETS = {{1, -1}, {1, 1}};
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+    private static final long[] ROOK_MAGICS = {
+        0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+        0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+        0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8611001004200900L,
+        0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+        0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+        0x0001818014000800L, 0xA002010100080400L, 0x0008040088020130L, 0x0001020004048845L,
+        0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+        0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+        0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+        0x4540040080800800L, 0x0000800400800200L, 0x9281800100808200L, 0x8004048102000854L,
+        0x4420802040008006L, 0x0880500020004002L, 0x0801200241050010L, 0x8400080010008080L,
+        0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+        0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+        0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+        0x8044110480002441L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+        0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+        0x1010220204082A00L, 0x80E0020202002804L, 0x2008480104200020L, 0x000220920280002DL,
+        0x32040421000B0284L, 0x1002080404000400L, 0x0004160892080040L, 0x2203024206204201L,
+        0x0002404264010200L, 0x1120908408428124L, 0xB100424403002280L, 0x240008060440C288L,
+        0x2040040420490400L, 0x0100620210040022L, 0x0400084104202028L, 0x0010050080908820L,
+        0x0C90A04490824802L, 0x000200A008210130L, 0x0C08001000204010L, 0x0008000186014480L,
+        0x0601044820080021L, 0x0002000101013100L, 0x1400A08108080204L, 0x0250401104485410L,
+        0x4820240810142843L, 0x0009142A20182200L, 0x0848140048440020L, 0x2020120000400440L,
+        0x0108840200802003L, 0x0009070082009492L, 0x020C0C0038424245L, 0xCA44005808210410L,
+        0x8011212000500404L, 0x2028840510101008L, 0x0004042A00041400L, 0x0624020080980080L,
+        0x1820410040840040L, 0x2201004202050100L, 0x402A088A24040224L, 0x0242061040002400L,
+        0x90020202400821A0L, 0x00C9009004E01002L, 0x58C2060202023100L, 0x0000012214040800L,
+        0x0210846810100200L, 0x0004208081010200L, 0x01A4108404442100L, 0x8054082C80280106L,
+        0x0004144904104208L, 0x00324C0A11104000L, 0x1000020231040100L, 0x2080001042020004L,
+        0x0544021020288104L, 0x1103501408083020L, 0x4010451004960002L, 0x003010091C44902CL,
+        0x0102402884202000L, 0x0480804C00841086L, 0x04602C8602210400L, 0x0000004000420200L,
+        0x0040000020442C18L, 0x4483804089094100L, 0x80000B0248020400L, 0x0045010808008680L
+    };
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final long[][] ROOK_ATTACKS = new long[64][];
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final long[][] BISHOP_ATTACKS = new long[64][];
+
+    static {
+        for (int tile = 0; tile < 64; tile++) {
+            KNIGHT_ATTACKS[tile] = leap(tile, KNIGHT_OFFSETS);
+            KING_ATTACKS[tile] = leap(tile, KING_OFFSETS);
+            PAWN_ATTACKS[0][tile] = leap(tile, WHITE_PAWN_OFFSETS);
+            PAWN_ATTACKS[1][tile] = leap(tile, BLACK_PAWN_OFFSETS);
+
+            initMagic(tile, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_ATTACKS);
+            initMagic(tile, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_ATTACKS);
+        }
+
+        // Lines are only filled in for tiles that share a rank, file or diagonal
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long bitA = 1L << a, bitB = 1L << b;
+
+                if (a != b && (rookAttacks(a, 0L) & bitB) != 0) {
+                    LINE[a][b] = (rookAttacks(a, 0L) & rookAttacks(b, 0L)) | bitA | bitB;
+                    BETWEEN[a][b] = rookAttacks(a, bitB) & rookAttacks(b, bitA);
+                } else if (a != b && (bishopAttacks(a, 0L) & bitB) != 0) {
+                    LINE[a][b] = (bishopAttacks(a, 0L) & bishopAttacks(b, 0L)) | bitA | bitB;
+                    BETWEEN[a][b] = bishopAttacks(a, bitB) & bishopAttacks(b, bitA);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the tiles strictly between two tiles on the same rank, file or diagonal.
+     * @param a the index of the first tile
+     * @param b the index of the second tile
+     * @return mask of tiles between them, or 0 if they don't share a line
+     */
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * Gets the whole rank, file or diagonal running through two tiles.
+     * @param a the index of the first tile
+     * @param b the index of the second tile
+     * @return mask of the line, edge to edge, or 0 if they don't share a line
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    /**
+     * Gets the tiles a knight attacks.
+     * @param tile the index of the knight's tile
+     * @return mask of attacked tiles
+     */
+    public static long knightAttacks(int tile) {
+        return KNIGHT_ATTACKS[tile];
+    }
+
+    /**
+     * Gets the tiles a king attacks.
+     * @param tile the index of the king's tile
+     * @return mask of attacked tiles
+     */
+    public static long kingAttacks(int tile) {
+        return KING_ATTACKS[tile];
+    }
+
+    /**
+     * Gets the tiles a pawn attacks, which are diagonally in front of it.
+     * @param tile    the index of the pawn's tile
+     * @param isWhite if the pawn is white
+     * @return mask of attacked tiles
+     */
+    public static long pawnAttacks(int tile, boolean isWhite) {
+        return PAWN_ATTACKS[isWhite ? 0 : 1][tile];
+    }
+
+    /**
+     * Gets the tiles a rook attacks.
+     * @param tile     the index of the rook's tile
+     * @param occupied mask of all occupied tiles
+     * @return mask of attacked tiles, including the first blocker in each direction
+     */
+    public static long rookAttacks(int tile, long occupied) {
+        return ROOK_ATTACKS[tile][(int)(((occupied & ROOK_MASKS[tile]) * ROOK_MAGICS[tile]) >>> ROOK_SHIFTS[tile])];
+    }
+
+    /**
+     * Gets the tiles a bishop attacks.
+     * @param tile     the index of the bishop's tile
+     * @param occupied mask of all occupied tiles
+     * @return mask of attacked tiles, including the first blocker in each direction
+     */
+    public static long bishopAttacks(int tile, long occupied) {
+        return BISHOP_ATTACKS[tile][(int)(((occupied & BISHOP_MASKS[tile]) * BISHOP_MAGICS[tile]) >>> BISHOP_SHIFTS[tile])];
+    }
+
+    /**
+     * Gets the tiles a queen attacks.
+     * @param tile     the index of the queen's tile
+     * @param occupied mask of all occupied tiles
+     * @return mask of attacked tiles, including the first blocker in each direction
+     */
+    public static long queenAttacks(int tile, long occupied) {
+        return rookAttacks(tile, occupied) | bishopAttacks(tile, occupied);
+    }
+
+    /**
+     * Fills in the attack table of the tile, indexed through its magic.
+     */
+    private static void initMagic(int tile, int[][] directions, long[] masks, long[] magics,
+                                  int[] shifts, long[][] attacks) {
+        long mask = relevantOccupancy(tile, directions);
+        int bits = Long.bitCount(mask);
+        long[] table = new long[1 << bits];
+        boolean[] filled = new boolean[table.length];
+
+        // Enumerate every subset of the mask, storing its attack set
+        long subset = 0L;
+        do {
+            int index = (int)((subset * magics[tile]) >>> (64 - bits));
+            long reference = slide(tile, subset, directions);
+
+            if (filled[index] && table[index] != reference)
+                throw new IllegalStateException("Magic collides on tile " + tile);
+
+            table[index] = reference;
+            filled[index] = true;
+            subset = (subset - mask) & mask;
+        } while (subset != 0L);
+
+        masks[tile] = mask;
+        shifts[tile] = 64 - bits;
+        attacks[tile] = table;
+    }
+
+    /**
+     * Gets the tiles at each offset from the tile, skipping the ones off the board.
+     */
+    private static long leap(int tile, int[][] offsets) {
+        long attacks = 0L;
+
+        for (int[] offset : offsets) {
+            int rank = tile / 8 + offset[0];
+            int file = tile % 8 + offset[1];
+
+            if (rank >= 0 && rank <= 7 && file >= 0 && file <= 7)
+                attacks |= 1L << (rank * 8 + file);
+        }
+
+        return attacks;
+    }
+
+    /**
+     * Gets the tiles whose occupancy can block a slider, which excludes the board edges.
+     */
+    private static long relevantOccupancy(int tile, int[][] directions) {
+        long mask = 0L;
+
+        for (int[] dir : directions) {
+            int rank = tile / 8 + dir[0];
+            int file = tile % 8 + dir[1];
+
+            while (rank + dir[0] >= 0 && rank + dir[0] <= 7 && file + dir[1] >= 0 && file + dir[1] <= 7) {
+                mask |= 1L << (rank * 8 + file);
+                rank += dir[0];
+                file += dir[1];
+            }
+        }
+
+        return mask;
+    }
+
+    /**
+     * Walks each ray from the tile until it leaves the board or hits a piece.
+     */
+    private static long slide(int tile, long occupied, int[][] directions) {
+        long attacks = 0L;
+
+        for (int[] dir : directions) {
+            int rank = tile / 8 + dir[0];
+            int file = tile % 8 + dir[1];
+
+            while (rank >= 0 && rank <= 7 && file >= 0 && file <= 7) {
+                long bit = 1L << (rank * 8 + file);
+                attacks |= bit;
+
+                if ((occupied & bit) != 0)
+                    break;
+
+                rank += dir[0];
+                file += dir[1];
+            }
+        }
+
+        return attacks;
+    }
+
+    private Attacks() {
+        // Never be able to construct this class, this is just a utility class.
+    }
+}
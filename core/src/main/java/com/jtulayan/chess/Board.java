@@ -1,5 +1,6 @@
 package com.jtulayan.chess;
-import java.util.ArrayList;
+
+import java.util.Arrays;
 
 /**
  * Code representation of the game board.
@@ -11,14 +12,33 @@ import java.util.ArrayList;
  * Mementos are stored in FEN, and there are methods in this class to parse mementos into
  * board states.
  *
+ * The position itself is stored as bitboards: one 64-bit mask per piece code
+ * (see {@link Piece}), where bit i is set if that piece occupies tile i,
+ * along with aggregate masks for each color and all occupied tiles.
+ * A piece-per-tile mailbox is kept alongside for constant-time lookups.
+ *
+ * The board also keeps a Zobrist key of its position up to date as moves are made,
+ * see {@link #hash()}. Its material and piece-square scores are kept up to date
+ * the same way, see {@link PieceSquareTables}.
+ *
+ * Every move made pushes what it can't recompute onto an undo stack, so that
+ * {@link #unmakeMove(int)} can take it back without mementos. Mementos are meant
+ * for saving games, not for backtracking through a search.
+ *
  * @see <a href="https://en.wikipedia.org/wiki/Memento_pattern#Structure">Memento Pattern Structure</a>
  * @see <a href="https://en.wikipedia.org/wiki/Forsyth%E2%80%93Edwards_Notation">Forsyth-Edwards Notation (FEN)</a>
  */
 public class Board {
-    private final char[][] BOARD_STATE;
-    
-    private int posKingWhite = 4;
-    private int posKingBlack = 60;
+    private final long[] PIECE_BITBOARDS = new long[16];
+    private final long[] COLOR_BITBOARDS = new long[2];
+    private final int[] MAILBOX = new int[64];
+    private long occupied = 0L;
+    private long hash = 0L;
+
+    // Sums of PieceSquareTables over every piece on the board
+    private int midgameScore = 0;
+    private int endgameScore = 0;
+    private int phase = 0;
 
     private boolean isWhiteTurn = true;
 
@@ -28,13 +48,67 @@ public class Board {
     private int halfmoveClock = 0;
     private int fullmoveNumber = 1;
 
+    // Undo stack, each entry is the captured piece, castles, en passant + 1
+    // and halfmove clock packed into 4, 4, 8 and 16 bits, alongside the hash
+    private int[] undoStates = new int[256];
+    private long[] undoHashes = new long[256];
+    private int undoSize = 0;
+
+    // Castling rights kept when a move touches each tile, KQkq = 0x8421
+    private static final int[] CASTLE_MASKS = new int[64];
+    static {
+        for (int i = 0; i < 64; i++)
+            CASTLE_MASKS[i] = 0xF;
+
+        CASTLE_MASKS[0] = ~0x1;
+        CASTLE_MASKS[4] = ~0x3;
+        CASTLE_MASKS[7] = ~0x2;
+        CASTLE_MASKS[56] = ~0x4;
+        CASTLE_MASKS[60] = ~0xC;
+        CASTLE_MASKS[63] = ~0x8;
+    }
+
     /**
      * Initializes board given the board state
      * 
      * @param boardState the char array to define the starting board layout
      */
     public Board(char[][] boardState) {
-        BOARD_STATE = boardState;
+        for (int i = 0; i < 64; i++) {
+            int piece = Piece.fromChar(boardState[i / 8][i % 8]);
+
+            if (piece != Piece.EMPTY)
+                setPiece(i, piece);
+        }
+
+        hash = computeHash();
+    }
+
+    /**
+     * Initializes board as a copy of another board, including its move history.
+     * The copy shares nothing with the original, so each can be used by a different thread.
+     *
+     * @param other the board to copy
+     */
+    public Board(Board other) {
+        System.arraycopy(other.PIECE_BITBOARDS, 0, PIECE_BITBOARDS, 0, PIECE_BITBOARDS.length);
+        System.arraycopy(other.COLOR_BITBOARDS, 0, COLOR_BITBOARDS, 0, COLOR_BITBOARDS.length);
+        System.arraycopy(other.MAILBOX, 0, MAILBOX, 0, MAILBOX.length);
+        occupied = other.occupied;
+        hash = other.hash;
+        midgameScore = other.midgameScore;
+        endgameScore = other.endgameScore;
+        phase = other.phase;
+
+        isWhiteTurn = other.isWhiteTurn;
+        castles = other.castles;
+        enPassant = other.enPassant;
+        halfmoveClock = other.halfmoveClock;
+        fullmoveNumber = other.fullmoveNumber;
+
+        undoStates = other.undoStates.clone();
+        undoHashes = other.undoHashes.clone();
+        undoSize = other.undoSize;
     }
 
     /**
@@ -59,71 +133,84 @@ public class Board {
      * i.e.: it is a legal move made
      * by the side whose turn it currently is
      * 
-     * @param move the move to make, notated as  "<origin_space><dest_space>"
+     * @param move the move to make, notated as "f1r1f2r2dFF"
      * @return AN of move
+     *
+     * @see Move#parse(String)
      */
     public String makeMove(String move) {
-        // Info
-        String an = "";
-        boolean irreversible = false;
-
-        String fromAN = move.substring(0, 2);
-        String toAN = move.substring(2, 4);
-        int from = AlgebraicNotation.getTileIndex(fromAN);
-        int to = AlgebraicNotation.getTileIndex(toAN);
-        int fromRank = from / 8;
-        int fromFile = from % 8;
-        int toRank = to / 8;
-        int toFile = to % 8;
-
-        char destPiece = move.charAt(4);
-
-        // Parse flags
-        String flags = "" + "000" + Integer.toBinaryString(Integer.parseInt(move.substring(5)));
-        flags = flags.substring(flags.length() - 4);
-        boolean isPromo = '1' == flags.charAt(0);
-        boolean isCapture = '1' == flags.charAt(1);
-        boolean isSpecial1 = '1' == flags.charAt(2);
-        boolean isSpecial0 = '1' == flags.charAt(3);
-
-        char piece = BOARD_STATE[fromRank][fromFile];
-        char pieceAN = Character.toUpperCase(piece);
+        int m = Move.parse(move);
+        String an = notate(m);
+
+        makeMove(m);
+
+        return an;
+    }
+
+    /**
+     * Performs the specified move.
+     * This assumes the given move is valid to begin with,
+     * i.e.: it is a legal move made
+     * by the side whose turn it currently is
+     *
+     * @param move the move to make, encoded as per {@link Move}
+     */
+    public void makeMove(int move) {
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int flags = Move.getFlags(move);
+        int piece = MAILBOX[from];
+        int captured = MAILBOX[to];
+        boolean irreversible = (flags & MoveGenerators.F_CAPTURE) != 0;
+
+        // En passant is the only capture that isn't on the destination tile
+        if (flags == (MoveGenerators.F_CAPTURE | MoveGenerators.F_SPECIAL_0))
+            captured = MAILBOX[(from & ~7) | (to & 7)];
+
+        pushUndo(captured);
+
+        // Take the old state out of the hash, pieces are hashed as they move
+        hash ^= Zobrist.castles(castles) ^ Zobrist.enPassant(enPassant);
 
         // Perform move
-        BOARD_STATE[toRank][toFile] = piece;
-        BOARD_STATE[fromRank][fromFile] = ' ';
+        if (MAILBOX[to] != Piece.EMPTY)
+            removePiece(to);
+        removePiece(from);
+        setPiece(to, piece);
 
         // Per-piece special things
         enPassant = -1;
-        switch (pieceAN) {
-            case 'K':
-                break;
-            case 'Q':
-                break;
-            case 'N':
-                break;
-            case 'B':
-                break;
-            case 'R':
+        switch (Piece.getType(piece)) {
+            case Piece.KING:
+                if (flags == MoveGenerators.F_SPECIAL_1) { // Kingside castle
+                    int rook = MAILBOX[from + 3];
+                    removePiece(from + 3);
+                    setPiece(from + 1, rook);
+                } else if (flags == (MoveGenerators.F_SPECIAL_1 | MoveGenerators.F_SPECIAL_0)) { // Queenside castle
+                    int rook = MAILBOX[from - 4];
+                    removePiece(from - 4);
+                    setPiece(from - 1, rook);
+                }
                 break;
-            case 'P':
+            case Piece.PAWN:
                 irreversible = true;
 
-                if (isPromo) {
-                    // Promotion logic
-                } else if (isSpecial0) {
-                    int dir = (int)Math.signum(toRank - fromRank);
-
-                    if (isCapture) // En passant case
-                        BOARD_STATE[toRank - dir][toFile] = ' ';
+                if ((flags & MoveGenerators.F_PROMO) != 0) {
+                    removePiece(to);
+                    setPiece(to, Piece.make(Move.getPromotionType(move), isWhiteTurn));
+                } else if ((flags & MoveGenerators.F_SPECIAL_0) != 0) {
+                    if ((flags & MoveGenerators.F_CAPTURE) != 0) // En passant case, pawn is beside the origin
+                        removePiece((from & ~7) | (to & 7));
                     else // Double pawn push case
-                        enPassant = 8 * toRank - 8 * dir + fromFile;
+                        enPassant = (from + to) / 2;
                 }
-
+                break;
+            default:
                 break;
         }
 
-        irreversible |= isCapture;
+        // Moving a king or rook, or capturing a rook, loses castling rights
+        castles &= CASTLE_MASKS[from] & CASTLE_MASKS[to];
 
         // Modify halfmove clock
         if (!irreversible)
@@ -138,7 +225,97 @@ public class Board {
         // Turn over
         isWhiteTurn = !isWhiteTurn;
 
-        // Notate the move
+        hash ^= Zobrist.castles(castles) ^ Zobrist.enPassant(enPassant) ^ Zobrist.blackToMove();
+    }
+
+    /**
+     * Takes back the specified move.
+     * The move must be the last one made on this board that hasn't been taken back yet.
+     *
+     * @param move the move to take back, encoded as per {@link Move}
+     */
+    public void unmakeMove(int move) {
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int flags = Move.getFlags(move);
+
+        undoSize--;
+        int state = undoStates[undoSize];
+        int captured = state & 0xF;
+
+        // Turn back
+        isWhiteTurn = !isWhiteTurn;
+        if (!isWhiteTurn)
+            fullmoveNumber--;
+
+        // Put the piece back, undoing any promotion
+        int piece = MAILBOX[to];
+        removePiece(to);
+        if ((flags & MoveGenerators.F_PROMO) != 0)
+            piece = Piece.make(Piece.PAWN, isWhiteTurn);
+        setPiece(from, piece);
+
+        // Put back whatever was captured
+        if (flags == (MoveGenerators.F_CAPTURE | MoveGenerators.F_SPECIAL_0))
+            setPiece((from & ~7) | (to & 7), captured);
+        else if (captured != Piece.EMPTY)
+            setPiece(to, captured);
+
+        // Put back the castling rook
+        if (Piece.getType(piece) == Piece.KING) {
+            if (flags == MoveGenerators.F_SPECIAL_1) {
+                int rook = MAILBOX[from + 1];
+                removePiece(from + 1);
+                setPiece(from + 3, rook);
+            } else if (flags == (MoveGenerators.F_SPECIAL_1 | MoveGenerators.F_SPECIAL_0)) {
+                int rook = MAILBOX[from - 1];
+                removePiece(from - 1);
+                setPiece(from - 4, rook);
+            }
+        }
+
+        castles = (state >>> 4) & 0xF;
+        enPassant = ((state >>> 8) & 0xFF) - 1;
+        halfmoveClock = state >>> 16;
+        hash = undoHashes[undoSize];
+    }
+
+    /**
+     * Saves the state a move can't recompute when it's taken back.
+     */
+    private void pushUndo(int captured) {
+        if (undoSize == undoStates.length) {
+            undoStates = Arrays.copyOf(undoStates, undoSize * 2);
+            undoHashes = Arrays.copyOf(undoHashes, undoSize * 2);
+        }
+
+        undoStates[undoSize] = captured | (castles << 4) | ((enPassant + 1) << 8) | (halfmoveClock << 16);
+        undoHashes[undoSize] = hash;
+        undoSize++;
+    }
+
+    /**
+     * Notates the given move in AN.
+     * Must be called before the move is made.
+     *
+     * @param move the move, encoded as per {@link Move}
+     * @return AN of move
+     */
+    public String notate(int move) {
+        String an = "";
+
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int flags = Move.getFlags(move);
+        String fromAN = AlgebraicNotation.getAN(from / 8, from % 8);
+        String toAN = AlgebraicNotation.getAN(to / 8, to % 8);
+        char pieceAN = Piece.toChar(Piece.getType(MAILBOX[from]));
+
+        boolean isPromo = (flags & MoveGenerators.F_PROMO) != 0;
+        boolean isCapture = (flags & MoveGenerators.F_CAPTURE) != 0;
+        boolean isSpecial1 = (flags & MoveGenerators.F_SPECIAL_1) != 0;
+        boolean isSpecial0 = (flags & MoveGenerators.F_SPECIAL_0) != 0;
+
         if (!isPromo && !isCapture && isSpecial1) { // It's some type of castle
             if (isSpecial0)
                 an = AlgebraicNotation.CASTLE_QUEENSIDE;
@@ -149,25 +326,17 @@ public class Board {
             if (isCapture)
                 an += AlgebraicNotation.CAPTURE;
             an += toAN;
-        } else if (pieceAN == 'P') {
+        } else {
             if (isCapture) {
                 an += fromAN.charAt(0) + AlgebraicNotation.CAPTURE + toAN;
-                if (isSpecial0) // En passant
+                if (isSpecial0 && !isPromo) // En passant
                     an += AlgebraicNotation.EN_PASSANST;
             } else {
                 an += toAN;
-                if (isPromo) {
-                    an += AlgebraicNotation.PROMOTION;
-                    if (isSpecial1 && isSpecial0)
-                        an += 'Q';
-                    else if (!isSpecial1 && isSpecial0)
-                        an += 'B';
-                    else if (isSpecial1 && !isSpecial0)
-                        an += 'R';
-                    else
-                        an += 'N';
-                }
             }
+
+            if (isPromo)
+                an += AlgebraicNotation.PROMOTION + Piece.toChar(Move.getPromotionType(move));
         }
 
         return an;
@@ -186,7 +355,151 @@ public class Board {
             throw new IllegalArgumentException("File is outside range! Was " + file);
 
 
-        return BOARD_STATE[rank][file];
+        return Piece.toChar(MAILBOX[rank * 8 + file]);
+    }
+
+    /**
+     * Gets the piece code on the given tile.
+     * Unlike {@link #getPiece(int, int)}, this does no range checking.
+     * @param tile the index of the tile (0-63)
+     * @return the piece code, or {@link Piece#EMPTY}
+     */
+    public int pieceAt(int tile) {
+        return MAILBOX[tile];
+    }
+
+    /**
+     * Gets the bitboard for the given piece.
+     * @param piece the piece code
+     * @return mask of all tiles occupied by that piece
+     */
+    public long getBitboard(int piece) {
+        return PIECE_BITBOARDS[piece];
+    }
+
+    /**
+     * Gets the bitboard of all pieces of a side.
+     * @param isWhite if the side is white
+     * @return mask of all tiles occupied by that side
+     */
+    public long getOccupancy(boolean isWhite) {
+        return COLOR_BITBOARDS[isWhite ? 0 : 1];
+    }
+
+    /**
+     * Gets the bitboard of all pieces on the board.
+     * @return mask of all occupied tiles
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Checks if a tile is attacked by the given side.
+     * @param tile    the index of the tile
+     * @param byWhite if the attacking side is white
+     * @return true if any piece of that side attacks the tile
+     */
+    public boolean isAttacked(int tile, boolean byWhite) {
+        int color = byWhite ? Piece.WHITE : Piece.BLACK;
+
+        // A pawn attacks the tile if a pawn of the other color on the tile would attack it
+        if ((Attacks.pawnAttacks(tile, !byWhite) & PIECE_BITBOARDS[Piece.PAWN | color]) != 0)
+            return true;
+        if ((Attacks.knightAttacks(tile) & PIECE_BITBOARDS[Piece.KNIGHT | color]) != 0)
+            return true;
+        if ((Attacks.kingAttacks(tile) & PIECE_BITBOARDS[Piece.KING | color]) != 0)
+            return true;
+
+        long queens = PIECE_BITBOARDS[Piece.QUEEN | color];
+        long diagonals = PIECE_BITBOARDS[Piece.BISHOP | color] | queens;
+        long orthogonals = PIECE_BITBOARDS[Piece.ROOK | color] | queens;
+        if ((Attacks.bishopAttacks(tile, occupied) & diagonals) != 0)
+            return true;
+        if ((Attacks.rookAttacks(tile, occupied) & orthogonals) != 0)
+            return true;
+
+        return false;
+    }
+
+    /**
+     * Gets every piece of a side attacking a tile, given an occupancy.
+     * The occupancy need not match the board, which lets callers see through pieces about to move.
+     * @param tile     the index of the tile
+     * @param byWhite  if the attacking side is white
+     * @param occupied mask of occupied tiles to use for sliders
+     * @return mask of attacking pieces
+     */
+    public long getAttackers(int tile, boolean byWhite, long occupied) {
+        int color = byWhite ? Piece.WHITE : Piece.BLACK;
+        long queens = PIECE_BITBOARDS[Piece.QUEEN | color];
+
+        return (Attacks.pawnAttacks(tile, !byWhite) & PIECE_BITBOARDS[Piece.PAWN | color])
+            | (Attacks.knightAttacks(tile) & PIECE_BITBOARDS[Piece.KNIGHT | color])
+            | (Attacks.kingAttacks(tile) & PIECE_BITBOARDS[Piece.KING | color])
+            | (Attacks.bishopAttacks(tile, occupied) & (PIECE_BITBOARDS[Piece.BISHOP | color] | queens))
+            | (Attacks.rookAttacks(tile, occupied) & (PIECE_BITBOARDS[Piece.ROOK | color] | queens));
+    }
+
+    /**
+     * Gets the tile of a side's king.
+     * @param isWhite if the side is white
+     * @return the index of the king's tile, or 64 if there is no king
+     */
+    public int getKingTile(boolean isWhite) {
+        return Long.numberOfTrailingZeros(PIECE_BITBOARDS[Piece.make(Piece.KING, isWhite)]);
+    }
+
+    /**
+     * Checks if the given side's king is in check.
+     * @param isWhite if the side is white
+     * @return true if the king is attacked
+     */
+    public boolean isInCheck(boolean isWhite) {
+        long king = PIECE_BITBOARDS[Piece.make(Piece.KING, isWhite)];
+
+        if (king == 0L)
+            return false;
+
+        return isAttacked(Long.numberOfTrailingZeros(king), !isWhite);
+    }
+
+    /**
+     * Places a piece on an empty tile.
+     * Used to set up a position from scratch, after {@link #clearBoard()} and before
+     * {@link #setState(boolean, int, int, int, int)}.
+     * @param tile  the index of the tile
+     * @param piece the piece code
+     */
+    public void setPiece(int tile, int piece) {
+        long bit = 1L << tile;
+
+        MAILBOX[tile] = piece;
+        PIECE_BITBOARDS[piece] |= bit;
+        COLOR_BITBOARDS[piece >>> 3] |= bit;
+        occupied |= bit;
+        hash ^= Zobrist.piece(piece, tile);
+        midgameScore += PieceSquareTables.midgame(piece, tile);
+        endgameScore += PieceSquareTables.endgame(piece, tile);
+        phase += PieceSquareTables.phase(piece);
+    }
+
+    /**
+     * Removes the piece on an occupied tile.
+     * @param tile the index of the tile
+     */
+    private void removePiece(int tile) {
+        long bit = ~(1L << tile);
+        int piece = MAILBOX[tile];
+
+        MAILBOX[tile] = Piece.EMPTY;
+        PIECE_BITBOARDS[piece] &= bit;
+        COLOR_BITBOARDS[piece >>> 3] &= bit;
+        occupied &= bit;
+        hash ^= Zobrist.piece(piece, tile);
+        midgameScore -= PieceSquareTables.midgame(piece, tile);
+        endgameScore -= PieceSquareTables.endgame(piece, tile);
+        phase -= PieceSquareTables.phase(piece);
     }
 
     /**
@@ -201,65 +514,186 @@ public class Board {
         return isWhiteTurn;
     }
 
+    /**
+     * Gets the castling rights.
+     * @return the castling rights, KQkq = 0x8421
+     */
+    public int getCastles() {
+        return castles;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    /**
+     * Sets everything but the pieces, after the pieces have been placed.
+     * This rehashes the position and clears the undo stack.
+     */
+    public void setState(boolean isWhiteTurn, int castles, int enPassant, int halfmoveClock, int fullmoveNumber) {
+        this.isWhiteTurn = isWhiteTurn;
+        this.castles = castles;
+        this.enPassant = enPassant;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+
+        hash = computeHash();
+        undoSize = 0;
+    }
+
+    /**
+     * Gets the Zobrist key of the current position.
+     * Equal positions, down to side to move, castling rights and
+     * en passant file, have equal keys.
+     * @return the 64-bit key
+     *
+     * @see Zobrist
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Gets the material and piece-square score of the position for the middlegame.
+     * @return the score from white's point of view, in centipawns
+     *
+     * @see PieceSquareTables
+     */
+    public int getMidgameScore() {
+        return midgameScore;
+    }
+
+    /**
+     * Gets the material and piece-square score of the position for the endgame.
+     * @return the score from white's point of view, in centipawns
+     *
+     * @see PieceSquareTables
+     */
+    public int getEndgameScore() {
+        return endgameScore;
+    }
+
+    /**
+     * Gets the game phase, from the pieces left on the board.
+     * Promotions can push this past {@link PieceSquareTables#MAX_PHASE}.
+     * @return the phase, 0 with only kings and pawns left
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Checks if the current position has come up before since the last irreversible move.
+     * Only positions reached through {@link #makeMove(int)} on this board are known.
+     * @return true if the position is a repetition
+     */
+    public boolean isRepetition() {
+        int oldest = Math.max(0, undoSize - halfmoveClock);
+
+        // The same side has to be to move, so only every other position can match
+        for (int i = undoSize - 4; i >= oldest; i -= 2) {
+            if (undoHashes[i] == hash)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Computes the Zobrist key of the current position from scratch.
+     */
+    private long computeHash() {
+        long key = Zobrist.castles(castles) ^ Zobrist.enPassant(enPassant);
+
+        if (!isWhiteTurn)
+            key ^= Zobrist.blackToMove();
+
+        for (long pieces = occupied; pieces != 0L; pieces &= pieces - 1) {
+            int tile = Long.numberOfTrailingZeros(pieces);
+            key ^= Zobrist.piece(MAILBOX[tile], tile);
+        }
+
+        return key;
+    }
+
     /**
      * Clears the board
      */
     public void clearBoard() {
         for (int i = 0; i < 64; i++)
-            BOARD_STATE[i / 8][i % 8] = ' ';
+            MAILBOX[i] = Piece.EMPTY;
+        for (int i = 0; i < PIECE_BITBOARDS.length; i++)
+            PIECE_BITBOARDS[i] = 0L;
+
+        COLOR_BITBOARDS[0] = 0L;
+        COLOR_BITBOARDS[1] = 0L;
+        occupied = 0L;
+        hash = computeHash();
+        midgameScore = 0;
+        endgameScore = 0;
+        phase = 0;
+    }
+
+    /**
+     * Lists all legal moves for the side whose turn it is.
+     *
+     * @param list the list to fill with all moves, encoded as per {@link Move}
+     *
+     * @see MoveGenerators#listLegalMoves(Board, MoveList)
+     */
+    public void listLegalMoves(MoveList list) {
+        list.clear();
+        MoveGenerators.listLegalMoves(this, list);
     }
 
     /**
      * Lists all possible moves that can be made for a given side.
+     * These are pseudo-legal, and may leave the side's own king in check.
      *
      * @param isWhite if the team to get for is the white team
-     * @return string of all moves.
+     * @param list    the list to fill with all moves, encoded as per {@link Move}
      *
      * @see MoveGenerators
      */
-    public String listPossibleMoves(boolean isWhite) {
-        String list = "";
-        for (int i = 0; i < 64; i++) {
-            String entry = "";
-            char curPiece = BOARD_STATE[i / 8][i % 8];
-            if (Character.isUpperCase(curPiece) != isWhite)
-                continue;
-
-            switch (Character.toUpperCase(curPiece)) {
-                case 'K':
-                    entry = MoveGenerators.listKingMoves(this, i);
+    public void listPossibleMoves(boolean isWhite, MoveList list) {
+        list.clear();
+
+        // Only visit the tiles this side actually occupies
+        long pieces = getOccupancy(isWhite);
+        while (pieces != 0L) {
+            int i = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+
+            switch (Piece.getType(MAILBOX[i])) {
+                case Piece.KING:
+                    MoveGenerators.listKingMoves(this, i, list);
                     break;
-                case 'Q':
-                    entry = MoveGenerators.listQueenMoves(this, i);
+                case Piece.QUEEN:
+                    MoveGenerators.listQueenMoves(this, i, list);
                     break;
-                case 'P':
-                    entry = MoveGenerators.listPawnMoves(this, i);
+                case Piece.PAWN:
+                    MoveGenerators.listPawnMoves(this, i, list);
                     break;
-                case 'N':
-                    entry = MoveGenerators.listKnightMoves(this, i);
+                case Piece.KNIGHT:
+                    MoveGenerators.listKnightMoves(this, i, list);
                     break;
-                case 'B':
-                    entry = MoveGenerators.listBishopMoves(this, i);
+                case Piece.BISHOP:
+                    MoveGenerators.listBishopMoves(this, i, list);
                     break;
-                case 'R':
-                    entry = MoveGenerators.listRookMoves(this, i);
+                case Piece.ROOK:
+                    MoveGenerators.listRookMoves(this, i, list);
                     break;
                 default:
                     break;
             }
-
-            if (entry.length() > 0)
-                list += entry + "/";
         }
 
         // Filter king captures
-        list = MoveGenerators.filterKingCaptures(list);
-
-        // Return everything but the redundant "/" at the end.
-        if (list.length() > 0)
-            list = list.substring(0, list.length() - 1);
-
-        return list;
+        MoveGenerators.filterKingCaptures(list);
     }
 
     public String toString() {
@@ -270,7 +704,7 @@ public class Board {
             board += "|";
 
             for (int f = 0; f < 8; f++) {
-                char tile = BOARD_STATE[r][f];
+                char tile = Piece.toChar(MAILBOX[r * 8 + f]);
 
                 if (tile == ' ')
                     tile = '-';
@@ -296,77 +730,7 @@ public class Board {
     }
 
     public void restore(Memento memento) {
-        String state = memento.toString(), board = "", turn = "", cas = "", enp = "";
-
-        // Repopulate board
-        // This is done by clearing the board, then parsing
-        // the FEN board
-        board = state.substring(0, state.indexOf(' '));
-        clearBoard();
-        for (int i = 0; i < 8; i++) {
-            String rank = board;
-
-            if (i < 7)
-                rank = board.substring(0, board.indexOf('/'));
-
-            int blankFile = 0;
-            for (int j = 0; j < 8; j++) {
-                char tile = rank.charAt(0);
-
-                if (Character.isDigit(tile) && blankFile == 0) {
-                    blankFile = Integer.parseInt("" + tile);
-
-                    if (rank.length() > 1)
-                        rank = rank.substring(1);
-                }
-
-                if (blankFile > 0) {
-                    BOARD_STATE[i][j] = ' ';
-                    blankFile -= 1;
-                } else {
-                    BOARD_STATE[i][j] = tile;
-
-                    if (rank.length() > 1)
-                        rank = rank.substring(1);
-                }
-            }
-
-            if (i < 7)
-                board = board.substring(board.indexOf('/') + 1);
-        }
-
-        state = state.substring(state.indexOf(' ') + 1);
-
-        // Check if it is white's turn
-        turn = state.substring(0, state.indexOf(' '));
-        isWhiteTurn = turn == "w";
-        state = state.substring(state.indexOf(' ') + 1);
-
-        // Get castling abilities
-        cas = state.substring(0, state.indexOf(' '));
-        castles = 0x0;
-        if (cas.contains("K"))
-            castles += 0x8;
-        if (cas.contains("Q"))
-            castles += 0x4;
-        if (cas.contains("k"))
-            castles += 0x2;
-        if (cas.contains("q"))
-            castles += 0x1;
-        state = state.substring(state.indexOf(' ') + 1);
-
-        enp = state.substring(0, state.indexOf(' '));
-        if ("-".equals(enp))
-            enPassant = 0;
-        else
-            enPassant = AlgebraicNotation.getTileIndex(enp);
-
-        state = state.substring(state.indexOf(' ') + 1);
-
-        halfmoveClock = Integer.parseInt(state.substring(0, state.indexOf(' ')));
-        state = state.substring(state.indexOf(' ') + 1);
-
-        fullmoveNumber = Integer.parseInt(state);
+        Fen.read(this, memento.toString());
     }
 
     /**
@@ -375,71 +739,20 @@ public class Board {
     public static class Memento {
         private String state;
 
+        /**
+         * Wraps an existing FEN string, so that it can be restored onto a board.
+         * @param fen the position in FEN
+         */
+        public Memento(String fen) {
+            state = fen;
+        }
+
         /**
          * Converts the specified board into FEN notation, for easier storage.
          * @param b the Board to store in the memento
          */
         public Memento(Board b) {
-            String newMemento = "";
-            // Start by storing the board itself
-            for (int i = 0; i < b.BOARD_STATE.length; i++) {
-                int blankSpace = 0;
-                for (int j = 0; j < b.BOARD_STATE[i].length; j++) {
-                    char curTile = b.BOARD_STATE[i][j];
-                    if (curTile == ' ') {
-                        blankSpace += 1;
-                        if (j == b.BOARD_STATE[i].length - 1)
-                            newMemento += "" + blankSpace;
-                    } else {
-                        if (blankSpace > 0) {
-                            newMemento += "" + blankSpace;
-                            blankSpace = 0;
-                        }
-                        newMemento += curTile;
-                    }
-                }
-                if (i < b.BOARD_STATE.length - 1)
-                    newMemento += "/";
-            }
-
-            newMemento += " ";
-
-            // Get current turn
-            newMemento += b.isWhiteTurn ? "w" : "b";
-
-            newMemento += " ";
-
-            // Get castles
-            if (b.castles == 0L)
-                newMemento = "-";
-            else {
-                String castlesBin = "000" + Long.toBinaryString(b.castles);
-                castlesBin = castlesBin.substring(castlesBin.length() - 4);
-
-                if (castlesBin.charAt(0) == '1')
-                    newMemento += 'K';
-                if (castlesBin.charAt(1) == '1')
-                    newMemento += 'Q';
-                if (castlesBin.charAt(2) == '1')
-                    newMemento += 'k';
-                if (castlesBin.charAt(3) == '1')
-                    newMemento += 'q';
-            }
-
-            newMemento += " ";
-
-            // Get en passant tile
-            if (b.enPassant == -1)
-                newMemento += "-";
-            else
-                newMemento += AlgebraicNotation.getAN(b.enPassant / 8, b.enPassant % 8);
-
-            newMemento += " ";
-
-            // Add halfmove clock and fullmove number
-            newMemento += "" + b.halfmoveClock + " " + b.fullmoveNumber;
-
-            state = newMemento;
+            state = Fen.write(b);
         }
 
         public String toString() {
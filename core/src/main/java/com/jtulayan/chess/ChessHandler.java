@@ -26,13 +26,14 @@ public class ChessHandler {
             {'R', 'N', 'B', 'Q', 'K', 'B', 'N', 'R'}
         });
 
+        MoveList moves = new MoveList();
         boolean playing = true;
         Scanner s = new Scanner(System.in);
         while (playing) {
             System.out.println(b);
 
-            String moves = b.listPossibleMoves(b.isWhiteTurn());
-            String move = "";
+            b.listLegalMoves(moves);
+            int move = Move.NONE;
 
             System.out.println(moves);
 
@@ -59,14 +60,16 @@ public class ChessHandler {
                     continue;
                 }
 
-                if (moves.contains(loc)) {
-                    move = loc;
-                    validLoc = true;
+                for (int i = 0; i < moves.size() && !validLoc; i++) {
+                    if (Move.toString(moves.get(i)).startsWith(loc)) {
+                        move = moves.get(i);
+                        validLoc = true;
+                    }
                 }
             }
 
-            int moveLoc = moves.indexOf(move);
-            System.out.println(b.makeMove(moves.substring(moveLoc, moves.indexOf("/", moveLoc))));
+            System.out.println(b.notate(move));
+            b.makeMove(move);
         }
     }
 }
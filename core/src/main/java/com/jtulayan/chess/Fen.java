@@ -0,0 +1,259 @@
+package com.jtulayan.chess;
+
+/**
+ * Reader and writer for positions in FEN.
+ *
+ * Reading walks the text once with a cursor, and writing appends to a
+ * caller-owned {@link StringBuilder}, so neither builds intermediate strings.
+ * The halfmove clock and fullmove number may be left off when reading,
+ * which lets this read the position part of EPD lines as well.
+ *
+ * A FEN is checked in full before the board is touched, so a rejected one leaves
+ * the board as it was. It must have one king a side, with the side not to move out
+ * of check, and an en passant tile on the rank a pawn of the side not to move skipped.
+ * Castling rights whose king or rook isn't on its starting tile are dropped.
+ *
+ * @see <a href="https://en.wikipedia.org/wiki/Forsyth%E2%80%93Edwards_Notation">Forsyth-Edwards Notation (FEN)</a>
+ */
+public final class Fen {
+    public static final String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String CASTLE_CHARS = "KQkq";
+
+    // Where the king and rook of each castling right, in KQkq order, have to be
+    private static final int[] CASTLE_KING_TILES = {60, 60, 4, 4};
+    private static final int[] CASTLE_ROOK_TILES = {63, 56, 7, 0};
+    private static final int[] CASTLE_KINGS = {Piece.KING, Piece.KING, Piece.KING | Piece.BLACK, Piece.KING | Piece.BLACK};
+    private static final int[] CASTLE_ROOKS = {Piece.ROOK, Piece.ROOK, Piece.ROOK | Piece.BLACK, Piece.ROOK | Piece.BLACK};
+
+    /**
+     * Sets up the board with the position in the FEN.
+     * @param b   the board to set up
+     * @param fen the position in FEN
+     */
+    public static void read(Board b, CharSequence fen) {
+        read(b, fen, 0);
+    }
+
+    /**
+     * Sets up the board with the position in the FEN, starting at the given index.
+     * @param b     the board to set up
+     * @param fen   the text containing the FEN
+     * @param start the index the FEN starts at
+     * @return the index just past the last field read
+     */
+    public static int read(Board b, CharSequence fen, int start) {
+        int length = fen.length();
+        int i = skipSpaces(fen, start);
+
+        // Piece placement, rank 8 first, which is also tile 0 onwards.
+        // Read into locals so a rejected FEN leaves the board untouched
+        int[] pieces = new int[64];
+        long[] bitboards = new long[16];
+        int tile = 0;
+        int rankEnd = 8;
+        while (i < length && fen.charAt(i) != ' ') {
+            char c = fen.charAt(i++);
+
+            if (c == '/') {
+                if (tile != rankEnd || rankEnd == 64)
+                    throw new IllegalArgumentException("Invalid FEN! Found " + fen);
+
+                rankEnd += 8;
+                continue;
+            }
+
+            if (c >= '1' && c <= '8') {
+                tile += c - '0';
+            } else {
+                int piece = Piece.fromChar(c);
+
+                if (piece == Piece.EMPTY || tile >= rankEnd)
+                    throw new IllegalArgumentException("Invalid FEN! Found " + fen);
+
+                bitboards[piece] |= 1L << tile;
+                pieces[tile++] = piece;
+            }
+
+            if (tile > rankEnd)
+                throw new IllegalArgumentException("Invalid FEN! Found " + fen);
+        }
+
+        if (tile != 64 || rankEnd != 64)
+            throw new IllegalArgumentException("Invalid FEN! Found " + fen);
+
+        // Side to move
+        i = skipSpaces(fen, i);
+        if (i >= length)
+            throw new IllegalArgumentException("Invalid FEN! Found " + fen);
+        char side = fen.charAt(i++);
+        if (side != 'w' && side != 'b')
+            throw new IllegalArgumentException("Invalid FEN! Found " + fen);
+        boolean isWhiteTurn = side == 'w';
+
+        // One king a side, and the side that just moved can't have left its king in check
+        long whiteKing = bitboards[Piece.KING];
+        long blackKing = bitboards[Piece.KING | Piece.BLACK];
+        if (Long.bitCount(whiteKing) != 1 || Long.bitCount(blackKing) != 1)
+            throw new IllegalArgumentException("FEN must have one king a side! Found " + fen);
+        if (isAttacked(bitboards, Long.numberOfTrailingZeros(isWhiteTurn ? blackKing : whiteKing), isWhiteTurn))
+            throw new IllegalArgumentException("FEN has the side not to move in check! Found " + fen);
+
+        // Castling rights, KQkq = 0x8421, dropping any whose king or rook has left its tile
+        int castles = 0;
+        i = skipSpaces(fen, i);
+        if (i < length && fen.charAt(i) == '-') {
+            i++;
+        } else {
+            while (i < length && fen.charAt(i) != ' ') {
+                int right = CASTLE_CHARS.indexOf(fen.charAt(i++));
+
+                if (right < 0)
+                    throw new IllegalArgumentException("Invalid FEN castling rights! Found " + fen);
+                castles |= 0x8 >>> right;
+            }
+        }
+        for (int right = 0; right < 4; right++) {
+            if (pieces[CASTLE_KING_TILES[right]] != CASTLE_KINGS[right] || pieces[CASTLE_ROOK_TILES[right]] != CASTLE_ROOKS[right])
+                castles &= ~(0x8 >>> right);
+        }
+
+        // En passant tile
+        int enPassant = -1;
+        i = skipSpaces(fen, i);
+        if (i < length && fen.charAt(i) == '-') {
+            i++;
+        } else if (i + 1 < length) {
+            int file = fen.charAt(i) - 'a';
+            int rank = 8 - (fen.charAt(i + 1) - '0');
+
+            // The tile a pawn just skipped over, on the sixth rank for white to take and the third for black
+            if (file < 0 || file > 7 || rank != (isWhiteTurn ? 2 : 5))
+                throw new IllegalArgumentException("Invalid FEN en passant tile! Found " + fen);
+
+            enPassant = rank * 8 + file;
+            i += 2;
+        }
+
+        // Optional clocks
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+        int next = skipSpaces(fen, i);
+        if (next < length && Character.isDigit(fen.charAt(next))) {
+            for (i = next; i < length && Character.isDigit(fen.charAt(i)); i++)
+                halfmoveClock = halfmoveClock * 10 + fen.charAt(i) - '0';
+
+            next = skipSpaces(fen, i);
+            if (next < length && Character.isDigit(fen.charAt(next))) {
+                fullmoveNumber = 0;
+                for (i = next; i < length && Character.isDigit(fen.charAt(i)); i++)
+                    fullmoveNumber = fullmoveNumber * 10 + fen.charAt(i) - '0';
+            }
+        }
+
+        b.clearBoard();
+        for (tile = 0; tile < 64; tile++) {
+            if (pieces[tile] != Piece.EMPTY)
+                b.setPiece(tile, pieces[tile]);
+        }
+        b.setState(isWhiteTurn, castles, enPassant, halfmoveClock, fullmoveNumber);
+
+        return i;
+    }
+
+    /**
+     * Appends the board's position in FEN.
+     * @param b  the board to write
+     * @param sb the builder to append to
+     * @return the given builder
+     */
+    public static StringBuilder write(Board b, StringBuilder sb) {
+        // Piece placement
+        for (int rank = 0; rank < 8; rank++) {
+            int blankSpace = 0;
+
+            for (int file = 0; file < 8; file++) {
+                int piece = b.pieceAt(rank * 8 + file);
+
+                if (piece == Piece.EMPTY) {
+                    blankSpace++;
+                } else {
+                    if (blankSpace > 0) {
+                        sb.append((char)('0' + blankSpace));
+                        blankSpace = 0;
+                    }
+                    sb.append(Piece.toChar(piece));
+                }
+            }
+
+            if (blankSpace > 0)
+                sb.append((char)('0' + blankSpace));
+            if (rank < 7)
+                sb.append('/');
+        }
+
+        // Side to move
+        sb.append(' ').append(b.isWhiteTurn() ? 'w' : 'b').append(' ');
+
+        // Castling rights
+        int castles = b.getCastles();
+        if (castles == 0) {
+            sb.append('-');
+        } else {
+            for (int right = 0; right < 4; right++) {
+                if ((castles & (0x8 >>> right)) != 0)
+                    sb.append(CASTLE_CHARS.charAt(right));
+            }
+        }
+
+        // En passant tile
+        int enPassant = b.getEnPassant();
+        sb.append(' ');
+        if (enPassant < 0)
+            sb.append('-');
+        else
+            sb.append((char)('a' + enPassant % 8)).append((char)('8' - enPassant / 8));
+
+        // Clocks
+        sb.append(' ').append(b.getHalfmoveClock()).append(' ').append(b.getFullmoveNumber());
+
+        return sb;
+    }
+
+    /**
+     * Gets the board's position in FEN.
+     * @param b the board to write
+     * @return the position in FEN
+     */
+    public static String write(Board b) {
+        return write(b, new StringBuilder(90)).toString();
+    }
+
+    /**
+     * Checks if a tile is attacked, by the pieces of a position that isn't on a board yet.
+     */
+    private static boolean isAttacked(long[] bitboards, int tile, boolean byWhite) {
+        int color = byWhite ? Piece.WHITE : Piece.BLACK;
+        long occupied = 0L;
+        for (long bitboard : bitboards)
+            occupied |= bitboard;
+
+        long queens = bitboards[Piece.QUEEN | color];
+        return (Attacks.pawnAttacks(tile, !byWhite) & bitboards[Piece.PAWN | color]) != 0L
+            || (Attacks.knightAttacks(tile) & bitboards[Piece.KNIGHT | color]) != 0L
+            || (Attacks.kingAttacks(tile) & bitboards[Piece.KING | color]) != 0L
+            || (Attacks.bishopAttacks(tile, occupied) & (bitboards[Piece.BISHOP | color] | queens)) != 0L
+            || (Attacks.rookAttacks(tile, occupied) & (bitboards[Piece.ROOK | color] | queens)) != 0L;
+    }
+
+    private static int skipSpaces(CharSequence fen, int i) {
+        while (i < fen.length() && fen.charAt(i) == ' ')
+            i++;
+
+        return i;
+    }
+
+    private Fen() {
+        // Never be able to construct this class, this is just a utility class.
+    }
+}
@@ -0,0 +1,122 @@
+package com.jtulayan.chess;
+
+/**
+ * Class that packs moves into primitive ints, so that generating
+ * and making moves never has to build or parse strings.
+ *
+ * A move is laid out as follows, from the least significant bit:
+ * <pre>
+ *  bits  0-5   origin tile (0-63)
+ *  bits  6-11  destination tile (0-63)
+ *  bits 12-15  flags, as defined in {@link MoveGenerators}
+ *  bits 16-19  captured piece code, see {@link Piece}
+ * </pre>
+ *
+ * The older "f1r1f2r2dFF" string notation is only kept as an adapter,
+ * see {@link #toString(int)} and {@link #parse(String)}.
+ */
+public final class Move {
+    /**
+     * Value that never represents a real move, as origin and destination can never be equal.
+     */
+    public static final int NONE = 0;
+
+    /**
+     * Encodes the move given the properties of the move.
+     * @param from     the index of the origin tile (0-63)
+     * @param to       the index of the destination tile (0-63)
+     * @param captured the code of the captured piece, or {@link Piece#EMPTY}
+     * @param flags    special flags to specify the type of move
+     * @return the encoded move
+     */
+    public static int encode(int from, int to, int captured, int flags) {
+        return from | (to << 6) | (flags << 12) | (captured << 16);
+    }
+
+    public static int getFrom(int move) {
+        return move & 0x3F;
+    }
+
+    public static int getTo(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int getFlags(int move) {
+        return (move >>> 12) & 0xF;
+    }
+
+    public static int getCaptured(int move) {
+        return (move >>> 16) & 0xF;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move & (MoveGenerators.F_CAPTURE << 12)) != 0;
+    }
+
+    public static boolean isPromotion(int move) {
+        return (move & (MoveGenerators.F_PROMO << 12)) != 0;
+    }
+
+    /**
+     * Gets the type of piece a pawn promotes to.
+     * Only meaningful if the move is a promotion.
+     * @param move the encoded move
+     * @return the piece type, from {@link Piece#KNIGHT} to {@link Piece#QUEEN}
+     */
+    public static int getPromotionType(int move) {
+        return Piece.KNIGHT + ((move >>> 12) & 0x3);
+    }
+
+    /**
+     * Formats the move into the "f1r1f2r2dFF" string notation.
+     * @param move the encoded move
+     * @return the move as a string
+     */
+    public static String toString(int move) {
+        int from = getFrom(move);
+        int to = getTo(move);
+        int captured = getCaptured(move);
+        int flags = getFlags(move);
+
+        char d = captured == Piece.EMPTY ? '-' : Piece.toChar(captured);
+        return AlgebraicNotation.getAN(from / 8, from % 8) + AlgebraicNotation.getAN(to / 8, to % 8)
+            + d + (char)('0' + flags / 10) + (char)('0' + flags % 10);
+    }
+
+    /**
+     * Formats the move into pure coordinate notation, e.g. "e2e4" or "e7e8q".
+     * @param move the encoded move
+     * @return the move as origin and destination tiles, plus promotion piece
+     */
+    public static String toCoordinates(int move) {
+        int from = getFrom(move);
+        int to = getTo(move);
+        String coordinates = AlgebraicNotation.getAN(from / 8, from % 8) + AlgebraicNotation.getAN(to / 8, to % 8);
+
+        if (isPromotion(move))
+            coordinates += Piece.toChar(getPromotionType(move) | Piece.BLACK);
+
+        return coordinates;
+    }
+
+    /**
+     * Parses a move in the "f1r1f2r2dFF" string notation.
+     * @param move the move as a string
+     * @return the encoded move
+     */
+    public static int parse(String move) {
+        if (move.length() != 7)
+            throw new IllegalArgumentException("Invalid format! Found " + move);
+
+        int from = AlgebraicNotation.getTileIndex(move.substring(0, 2));
+        int to = AlgebraicNotation.getTileIndex(move.substring(2, 4));
+        int captured = Piece.fromChar(move.charAt(4));
+        int flags = Integer.parseInt(move.substring(5));
+
+        return encode(from, to, captured, flags);
+    }
+
+    private Move() {
+        // Never be able to construct this class, this is just a utility class.
+    }
+}
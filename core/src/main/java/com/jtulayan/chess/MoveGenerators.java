@@ -1,17 +1,22 @@
 package com.jtulayan.chess;
 
-import com.badlogic.gdx.utils.Array;
-
 /**
  * Class containing all move generators.
  *
- * Moves are notated by a list of origin squares to destination squares
+ * Moves are packed into ints holding the origin and destination squares
  * as well as the piece on the destination square and special flags,
- * written as "f1r1f2r2dF."
- * Elements in the list are separated with /.
+ * see {@link Move}. Generators append their moves to the given list,
+ * so no allocation happens while generating.
  *
- * Flags are 1 byte words that represent captures, promotions, and other
+ * Flags are 4 bit words that represent captures, promotions, and other
  * special identifiers.
+ *
+ * The per-piece generators list pseudo-legal moves, which may leave the king
+ * in check. {@link #listLegalMoves(Board, MoveList)} only lists legal moves,
+ * by working out the pieces giving check and the pinned pieces up front.
+ *
+ * Legal moves can also be listed a subset at a time, see {@link #GEN_NOISY} and
+ * {@link #GEN_QUIET}, so a search can stop generating once it gets a cutoff.
  */
 public class MoveGenerators {
     // Flags
@@ -24,341 +29,343 @@ public class MoveGenerators {
         F_SPECIAL_1 = 0x2,
         F_SPECIAL_0 = 0x1;
 
-    /**
-     * Encodes the move given the properties of the move.
-     * @param from      the index of the origin tile (0-63)
-     * @param to        the index of the destination tile (0-63)
-     * @param destPiece the piece on the destination tile
-     * @param flags     special flags to specify the type of move
-     * @return the encoded move in a string
-     */
-    public static String encodeMove(int from, int to, char destPiece, int flags) {
-        String move = "";
-
-        // Encode from-to section
-        move += AlgebraicNotation.getAN(from / 8, from % 8) + AlgebraicNotation.getAN(to / 8, to % 8);
+    // Generation modes
+    // Noisy moves are captures and promotions, quiet moves are everything else.
+    public static final int
+        GEN_NOISY = 0x1,
+        GEN_QUIET = 0x2,
+        GEN_ALL = GEN_NOISY | GEN_QUIET;
 
-        // Encode destination piece and flags
-        char d = destPiece == ' ' ? '-' : destPiece;
-        move += "" + d + String.format("%02d", flags);
+    public static void listKingMoves(Board b, int from, MoveList list) {
+        boolean isWhite = Piece.isWhite(b.pieceAt(from));
+        long targets = Attacks.kingAttacks(from) & ~b.getOccupancy(isWhite);
 
-        return move;
+        addMoves(b, from, targets, list);
+        addCastles(b, from, isWhite, list);
     }
 
-    public static String listKingMoves(Board b, int from) {
-        String list = "";
+    public static void listQueenMoves(Board b, int from, MoveList list) {
+        boolean isWhite = Piece.isWhite(b.pieceAt(from));
+        long targets = Attacks.queenAttacks(from, b.getOccupied()) & ~b.getOccupancy(isWhite);
 
-        // Gotta get all the info from the board
-        int rank = from / 8;
-        int file = from % 8;
-        char king = b.getPiece(rank, file);
-        boolean isWhite = Character.isUpperCase(king);
-
-        for (int i = -4; i <= 4; i++) {
-            int cur = from + i;
-            int flags = F_QUIET;
-            char curPiece;
-            // Skip numbers that are itself and out of index
-            if (cur == from || cur < 0 || cur > 63)
-                continue;
+        addMoves(b, from, targets, list);
+    }
 
-            curPiece = b.getPiece(cur / 8, cur % 8);
+    public static void listKnightMoves(Board b, int from, MoveList list) {
+        boolean isWhite = Piece.isWhite(b.pieceAt(from));
+        long targets = Attacks.knightAttacks(from) & ~b.getOccupancy(isWhite);
 
-            // Case-checking to determine if the piece
-            // on the tile is on the same team as the king.
-            if (' ' != curPiece && Character.isUpperCase(curPiece) == isWhite)
-                continue;
+        addMoves(b, from, targets, list);
+    }
 
-            // If it's a capture
-            if (' ' != curPiece)
-                flags |= F_CAPTURE;
+    public static void listBishopMoves(Board b, int from, MoveList list) {
+        boolean isWhite = Piece.isWhite(b.pieceAt(from));
+        long targets = Attacks.bishopAttacks(from, b.getOccupied()) & ~b.getOccupancy(isWhite);
 
-            list += encodeMove(from, cur, ' ', flags) + "/";
-        }
+        addMoves(b, from, targets, list);
+    }
 
-        // Return everything but the redundant "/" at the end.
-        if (list.length() > 0)
-            list = list.substring(0, list.length() - 2);
+    public static void listRookMoves(Board b, int from, MoveList list) {
+        boolean isWhite = Piece.isWhite(b.pieceAt(from));
+        long targets = Attacks.rookAttacks(from, b.getOccupied()) & ~b.getOccupancy(isWhite);
 
-        return list;
+        addMoves(b, from, targets, list);
     }
 
-    public static String listQueenMoves(Board b, int from) {
-        String list = "";
-
+    public static void listPawnMoves(Board b, int from, MoveList list) {
         // Gotta get all the info from the board
         int rank = from / 8;
-        int file = from % 8;
-        char queen = b.getPiece(rank, file);
-        boolean isWhite = Character.isUpperCase(queen);
-
-        // Loop to cover every direction.
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                // Ignore (0, 0).
-                if (i == 0 && j == 0)
-                    continue;
-
-                int counter = 1;
-                boolean blocked = false;
-                while (!blocked) {
-                    int curRank = rank + i * counter;
-                    int curFile = file + j * counter;
-                    int cur = curRank * 8 + curFile;
-                    int flags = F_QUIET;
-
-                    if (curRank > 7 || curRank < 0 || curFile > 7 || curFile < 0)
-                        break;
-
-                    char curPiece = b.getPiece(curRank, curFile);
-
-                    blocked = ' ' != curPiece;
-
-                    if (blocked) {
-                        if (Character.isUpperCase(curPiece) != isWhite)
-                            flags |= F_CAPTURE;
-                        else
-                            break;
-                    }
-
-                    list += encodeMove(from, cur, ' ', flags) + "/";
-
-                    counter++;
-                }
-            }
+        boolean isWhite = Piece.isWhite(b.pieceAt(from));
+        long occupied = b.getOccupied();
+
+        // Color-specific stuff
+        int dir;
+        boolean starting;
+        boolean promotes;
+
+        // Decide on color-specific items now, makes this process much easier.
+        if (isWhite) {
+            dir = -8; // Go up
+            starting = rank == 6; // On white's starting rank
+            promotes = rank == 1;
+        } else {
+            dir = 8; // Go down
+            starting = rank == 1;
+            promotes = rank == 6;
         }
 
-        // Return everything but the redundant "/" at the end.
-        if (list.length() > 0)
-            list = list.substring(0, list.length() - 1);
+        // If the space in front of it is empty, it is pseudo-legal.
+        // The double push also needs the space after that to be empty.
+        int to = from + dir;
+        if ((occupied & (1L << to)) == 0) {
+            addPawnMove(list, from, to, Piece.EMPTY, F_QUIET, promotes);
+            if (starting && (occupied & (1L << (to + dir))) == 0)
+                list.add(Move.encode(from, to + dir, Piece.EMPTY, F_SPECIAL_0));
+        }
 
-        return list;
-    }
+        // Check if possible captures can be made
+        long attacks = Attacks.pawnAttacks(from, isWhite);
+        long targets = attacks & b.getOccupancy(!isWhite);
+        while (targets != 0L) {
+            to = Long.numberOfTrailingZeros(targets);
+            addPawnMove(list, from, to, b.pieceAt(to), F_CAPTURE, promotes);
+            targets &= targets - 1;
+        }
 
-    public static String listKnightMoves(Board b, int from) {
-        String list = "";
+        // En passant tile is always empty, so it's checked on its own
+        int enPassant = b.getEnPassant();
+        if (enPassant >= 0 && (attacks & (1L << enPassant)) != 0)
+            list.add(Move.encode(from, enPassant, Piece.make(Piece.PAWN, !isWhite), F_CAPTURE | F_SPECIAL_0));
+    }
 
-        // Gotta get all the info from the board
-        int rank = from / 8;
-        int file = from % 8;
-        char knight = b.getPiece(rank, file);
-        boolean isWhite = Character.isUpperCase(knight);
+    /**
+     * Lists every legal move for the side whose turn it is.
+     *
+     * Checkers and pinned pieces are worked out once, so no move needs to be
+     * made to test it. In double check only the king can move, and in single
+     * check every other piece must capture the checker or block it.
+     *
+     * @param b    the board to generate for
+     * @param list the list to append moves to
+     */
+    public static void listLegalMoves(Board b, MoveList list) {
+        listLegalMoves(b, list, GEN_ALL, ~0L);
+    }
 
-        for (int r = -2; r <= 2; r++) {
-            int curRank = rank + r;
+    /**
+     * Lists the legal moves of a kind for the side whose turn it is.
+     *
+     * @param b    the board to generate for
+     * @param list the list to append moves to
+     * @param mode {@link #GEN_NOISY}, {@link #GEN_QUIET} or {@link #GEN_ALL}
+     */
+    public static void listLegalMoves(Board b, MoveList list, int mode) {
+        listLegalMoves(b, list, mode, ~0L);
+    }
 
-            // If rank is directly on 0
-            // or is out of range
-            if (r == 0 || curRank < 0 || curRank > 7)
-                continue;
+    /**
+     * Lists the legal moves of a kind for the side whose turn it is,
+     * only for the pieces on the given tiles.
+     *
+     * @param b       the board to generate for
+     * @param list    the list to append moves to
+     * @param mode    {@link #GEN_NOISY}, {@link #GEN_QUIET} or {@link #GEN_ALL}
+     * @param origins mask of the tiles to move pieces from
+     */
+    public static void listLegalMoves(Board b, MoveList list, int mode, long origins) {
+        boolean isWhite = b.isWhiteTurn();
+        long own = b.getOccupancy(isWhite);
+        long enemy = b.getOccupancy(!isWhite);
+        long occupied = b.getOccupied();
+        int king = b.getKingTile(isWhite);
+        long checkers = b.getAttackers(king, !isWhite, occupied);
+
+        // Tiles the mode allows moving to, promotions are sorted out by the pawns
+        long modeMask = ((mode & GEN_NOISY) != 0 ? enemy : 0L) | ((mode & GEN_QUIET) != 0 ? ~occupied : 0L);
+
+        // King moves, looking through the king so it can't step back along a checking ray
+        long kingTargets = (origins & (1L << king)) != 0 ? Attacks.kingAttacks(king) & ~own & modeMask : 0L;
+        long withoutKing = occupied & ~(1L << king);
+        while (kingTargets != 0L) {
+            int to = Long.numberOfTrailingZeros(kingTargets);
+
+            if (b.getAttackers(to, !isWhite, withoutKing) == 0L) {
+                int captured = b.pieceAt(to);
+                list.add(Move.encode(king, to, captured, captured == Piece.EMPTY ? F_QUIET : F_CAPTURE));
+            }
+            kingTargets &= kingTargets - 1;
+        }
 
-            for (int f = -2; f <= 2; f++) {
-                int curFile = file + f;
+        // Double check, nothing else can help
+        if (Long.bitCount(checkers) > 1)
+            return;
+
+        // Tiles that other pieces may move to
+        long targetMask = ~own;
+        if (checkers != 0L) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            targetMask = checkers | Attacks.between(king, checker);
+        } else if ((mode & GEN_QUIET) != 0 && (origins & (1L << king)) != 0) {
+            addCastles(b, king, isWhite, list);
+        }
 
-                // If file is on 0,
-                // displacement is directly diagonal,
-                // or file is out of range
-                if (f == 0 || Math.abs(r) == Math.abs(f) || curFile < 0 || curFile > 7)
-                    continue;
+        // Pieces between the king and an enemy slider, with nothing else in the way
+        long pinned = 0L;
+        int color = isWhite ? Piece.BLACK : Piece.WHITE;
+        long queens = b.getBitboard(Piece.QUEEN | color);
+        long snipers = (Attacks.rookAttacks(king, 0L) & (b.getBitboard(Piece.ROOK | color) | queens))
+            | (Attacks.bishopAttacks(king, 0L) & (b.getBitboard(Piece.BISHOP | color) | queens));
+        while (snipers != 0L) {
+            long blockers = Attacks.between(king, Long.numberOfTrailingZeros(snipers)) & occupied;
+
+            if (Long.bitCount(blockers) == 1)
+                pinned |= blockers & own;
+            snipers &= snipers - 1;
+        }
 
-                int flags = F_QUIET;
-                char piece = b.getPiece(rank + r, file + f);
+        long pieces = own & ~(1L << king) & origins;
+        while (pieces != 0L) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            int type = Piece.getType(b.pieceAt(from));
+            long mask = targetMask;
 
-                // Color check
-                if (' ' != piece) {
-                    if (Character.isUpperCase(piece) != isWhite)
-                        flags |= F_CAPTURE;
-                    else
-                        continue;
-                }
+            // Pinned pieces can only move along the pin
+            if ((pinned & (1L << from)) != 0)
+                mask &= Attacks.line(king, from);
 
-                list += encodeMove(from, curRank * 8 + curFile, piece, flags) + "/";
+            if (type == Piece.PAWN) {
+                listLegalPawnMoves(b, from, isWhite, mask, checkers, king, mode, list);
+                pieces &= pieces - 1;
+                continue;
             }
-        }
 
-        // Return everything but the redundant "/" at the end.
-        if (list.length() > 0)
-            list = list.substring(0, list.length() - 1);
+            mask &= modeMask;
+            switch (type) {
+                case Piece.KNIGHT:
+                    addMoves(b, from, Attacks.knightAttacks(from) & ~own & mask, list);
+                    break;
+                case Piece.BISHOP:
+                    addMoves(b, from, Attacks.bishopAttacks(from, occupied) & ~own & mask, list);
+                    break;
+                case Piece.ROOK:
+                    addMoves(b, from, Attacks.rookAttacks(from, occupied) & ~own & mask, list);
+                    break;
+                case Piece.QUEEN:
+                    addMoves(b, from, Attacks.queenAttacks(from, occupied) & ~own & mask, list);
+                    break;
+                default:
+                    break;
+            }
 
-        return list;
+            pieces &= pieces - 1;
+        }
     }
 
-    public static String listBishopMoves(Board b, int from) {
-        String list = "";
-
-        // Gotta get all the info from the board
+    /**
+     * Lists the legal moves of a pawn, given the tiles it may move to.
+     * Promoting pushes are noisy, other pushes are quiet.
+     */
+    private static void listLegalPawnMoves(Board b, int from, boolean isWhite, long mask,
+                                           long checkers, int king, int mode, MoveList list) {
         int rank = from / 8;
-        int file = from % 8;
-        char bishop = b.getPiece(rank, file);
-        boolean isWhite = Character.isUpperCase(bishop);
-
-        // Loop to cover every direction.
-        for (int i = -1; i <= 1; i += 2) {
-            for (int j = -1; j <= 1; j += 2) {
-                int counter = 1;
-                boolean blocked = false;
-                while (!blocked) {
-                    int curRank = rank + i * counter;
-                    int curFile = file + j * counter;
-                    int cur = curRank * 8 + curFile;
-                    int flags = F_QUIET;
-
-                    if (curRank > 7 || curRank < 0 || curFile > 7 || curFile < 0)
-                        break;
-
-                    char curPiece = b.getPiece(curRank, curFile);
-
-                    blocked = ' ' != curPiece;
-
-                    if (blocked) {
-                        if (Character.isUpperCase(curPiece) == isWhite)
-                            break;
-                        else
-                            flags = F_CAPTURE;
-                    }
-
-                    list += encodeMove(from, cur, curPiece, flags) + "/";
-
-                    counter++;
-                }
-            }
+        int dir = isWhite ? -8 : 8;
+        boolean starting = isWhite ? rank == 6 : rank == 1;
+        boolean promotes = isWhite ? rank == 1 : rank == 6;
+        long occupied = b.getOccupied();
+
+        // Pushes
+        int to = from + dir;
+        if ((occupied & (1L << to)) == 0 && (mode & (promotes ? GEN_NOISY : GEN_QUIET)) != 0) {
+            if ((mask & (1L << to)) != 0)
+                addPawnMove(list, from, to, Piece.EMPTY, F_QUIET, promotes);
+            if (starting && (occupied & (1L << (to + dir))) == 0 && (mask & (1L << (to + dir))) != 0)
+                list.add(Move.encode(from, to + dir, Piece.EMPTY, F_SPECIAL_0));
         }
 
-        // Return everything but the redundant "/" at the end.
-        if (list.length() > 0)
-            list = list.substring(0, list.length() - 1);
-
-        return list;
-    }
-
-    public static String listRookMoves(Board b, int from) {
-        String list = "";
+        if ((mode & GEN_NOISY) == 0)
+            return;
 
-        // Gotta get all the info from the board
-        int rank = from / 8;
-        int file = from % 8;
-        char rook = b.getPiece(rank, file);
-        boolean isWhite = Character.isUpperCase(rook);
-
-        // Loop to cover every direction.
-        for (int i = -1; i <= 1; i++) {
-            for (int j = -1; j <= 1; j++) {
-                if (Math.abs(i) == Math.abs(j))
-                    continue;
-
-                int counter = 1;
-                boolean blocked = false;
-                while (!blocked) {
-                    int curRank = rank + i * counter;
-                    int curFile = file + j * counter;
-                    int cur = curRank * 8 + curFile;
-                    int flags = F_QUIET;
-
-                    if (curRank > 7 || curRank < 0 || curFile > 7 || curFile < 0)
-                        break;
-
-                    char curPiece = b.getPiece(curRank, curFile);
-
-                    blocked = ' ' != curPiece;
-
-                    if (blocked) {
-                        if (Character.isUpperCase(curPiece) == isWhite)
-                            break;
-                        else
-                            flags = F_CAPTURE;
-                    }
-
-                    list += encodeMove(from, cur, ' ', flags) + "/";
-
-                    counter++;
-                }
-            }
+        // Captures
+        long attacks = Attacks.pawnAttacks(from, isWhite);
+        long targets = attacks & b.getOccupancy(!isWhite) & mask;
+        while (targets != 0L) {
+            to = Long.numberOfTrailingZeros(targets);
+            addPawnMove(list, from, to, b.pieceAt(to), F_CAPTURE, promotes);
+            targets &= targets - 1;
         }
 
-        // Return everything but the redundant "/" at the end.
-        if (list.length() > 0)
-            list = list.substring(0, list.length() - 1);
+        // En passant takes two pieces off a line at once, so it's checked by
+        // removing both pawns and looking for a slider on the king
+        int enPassant = b.getEnPassant();
+        if (enPassant < 0 || (attacks & (1L << enPassant)) == 0)
+            return;
 
-        return list;
-    }
+        int capturedTile = (from & ~7) | (enPassant & 7);
+        if (checkers != 0L && checkers != (1L << capturedTile) && (mask & (1L << enPassant)) == 0)
+            return;
 
-    public static String listPawnMoves(Board b, int from) {
-        String list = "";
+        long after = (occupied ^ (1L << from) ^ (1L << capturedTile)) | (1L << enPassant);
+        int color = isWhite ? Piece.BLACK : Piece.WHITE;
+        long queens = b.getBitboard(Piece.QUEEN | color);
+        if ((Attacks.rookAttacks(king, after) & (b.getBitboard(Piece.ROOK | color) | queens)) != 0
+                || (Attacks.bishopAttacks(king, after) & (b.getBitboard(Piece.BISHOP | color) | queens)) != 0)
+            return;
 
-        // Gotta get all the info from the board
-        int rank = from / 8;
-        int file = from % 8;
-        char pawn = b.getPiece(rank, file);
-        boolean isWhite = Character.isUpperCase(pawn);
+        list.add(Move.encode(from, enPassant, Piece.make(Piece.PAWN, !isWhite), F_CAPTURE | F_SPECIAL_0));
+    }
 
-        // Color-specific stuff
-        int dir = 0;
-        int promoRank = 0;
-        boolean starting = false;
+    /**
+     * Adds the castles a king can make.
+     * The king may not be in check, pass through an attacked tile or land on one.
+     */
+    private static void addCastles(Board b, int from, boolean isWhite, MoveList list) {
+        int castles = b.getCastles();
+        int home = isWhite ? 60 : 4;
+        int kingside = isWhite ? 0x8 : 0x2;
+        int queenside = isWhite ? 0x4 : 0x1;
+
+        if (from != home || (castles & (kingside | queenside)) == 0 || b.isAttacked(from, !isWhite))
+            return;
+
+        long occupied = b.getOccupied();
+        int rook = Piece.make(Piece.ROOK, isWhite);
+
+        if ((castles & kingside) != 0 && b.pieceAt(from + 3) == rook
+                && (occupied & ((1L << (from + 1)) | (1L << (from + 2)))) == 0
+                && !b.isAttacked(from + 1, !isWhite) && !b.isAttacked(from + 2, !isWhite))
+            list.add(Move.encode(from, from + 2, Piece.EMPTY, F_SPECIAL_1));
+
+        if ((castles & queenside) != 0 && b.pieceAt(from - 4) == rook
+                && (occupied & ((1L << (from - 1)) | (1L << (from - 2)) | (1L << (from - 3)))) == 0
+                && !b.isAttacked(from - 1, !isWhite) && !b.isAttacked(from - 2, !isWhite))
+            list.add(Move.encode(from, from - 2, Piece.EMPTY, F_SPECIAL_1 | F_SPECIAL_0));
+    }
 
-        // Decide on color-specific items now, makes this process much easier.
-        if (isWhite) {
-            dir = -1; // Go up
-            promoRank = 0;
-            starting = rank == 6; // On white's starting rank
-        } else {
-            dir = 1; // Go down
-            promoRank = 7;
-            starting = rank == 1;
-        }
+    /**
+     * Adds a move to each of the target tiles, flagging the ones that capture.
+     */
+    private static void addMoves(Board b, int from, long targets, MoveList list) {
+        while (targets != 0L) {
+            int to = Long.numberOfTrailingZeros(targets);
+            int captured = b.pieceAt(to);
 
-        // If the space in front of it is empty, it is pseudo-legal.
-        if (b.getPiece(rank + dir, file) == ' ') {
-            list += encodeMove(from, from + 8 * dir, ' ', F_QUIET) + "/";
-            if (starting && b.getPiece(rank + dir, file) == ' ')
-                list += encodeMove(from, from + 16 * dir, ' ', F_SPECIAL_0) + "/";
+            list.add(Move.encode(from, to, captured, captured == Piece.EMPTY ? F_QUIET : F_CAPTURE));
+            targets &= targets - 1;
         }
+    }
 
-        // Check if possible captures can be made
-        int attackRank = rank + dir;
-        for (int f = -1; f <= 1; f += 2) {
-            int curFile = file + f;
-            if (curFile > 0 && curFile < 7) {
-                char curPiece = b.getPiece(rank + dir, file + f);
-                int flags = F_QUIET;
-
-                if (' ' != curPiece && Character.isUpperCase(curPiece) != isWhite)
-                    flags = F_CAPTURE;
-                else if (' ' == curPiece && attackRank * 8 + curFile == b.getEnPassant()) {
-                    curPiece = isWhite ? 'p' : 'P';
-                    flags = F_CAPTURE | F_SPECIAL_0;
-                }
-
-                if ((flags & F_CAPTURE) == F_CAPTURE)
-                    list += encodeMove(from, from + 8 * dir + f, curPiece, flags) + "/";
-            }
+    /**
+     * Adds a pawn move, expanding it into all four promotions if needed.
+     */
+    private static void addPawnMove(MoveList list, int from, int to, int captured, int flags, boolean promotes) {
+        if (!promotes) {
+            list.add(Move.encode(from, to, captured, flags));
+            return;
         }
 
-        // Return everything but the redundant "/" at the end.
-        if (list.length() > 0)
-            list = list.substring(0, list.length() - 1);
-
-        return list;
+        // Promotion pieces are picked by the special bits, N B R Q
+        for (int promo = 0; promo < 4; promo++)
+            list.add(Move.encode(from, to, captured, F_PROMO | flags | promo));
     }
 
     /**
-     * Filters king captures from the list
+     * Filters king captures from the list, in place.
      * 
-     * @param ml movelist to filter
+     * @param moveList movelist to filter
      */
-    public static String filterKingCaptures(String ml) {
-        Array<String> moveList = new Array<>(ml.split("/"));
-
-        // Parse each move and check if it captures the opponent's king.
-        for (int i = 0; i < moveList.size; i++) {
-            String move = moveList.get(i);
-            char capPiece = move.toLowerCase().charAt(4);
-            int flags = Integer.parseInt(move.substring(5));
-            
-            if (capPiece == 'k' && (flags & F_CAPTURE) == F_CAPTURE)
-                moveList.removeIndex(i);
+    public static void filterKingCaptures(MoveList moveList) {
+        int size = 0;
+
+        // Check each move to see if it captures the opponent's king,
+        // and only keep the ones that don't.
+        for (int i = 0; i < moveList.size(); i++) {
+            int move = moveList.get(i);
+            int capPiece = Piece.getType(Move.getCaptured(move));
+
+            if (capPiece != Piece.KING || !Move.isCapture(move))
+                moveList.set(size++, move);
         }
 
-        return moveList.toString("/");
+        moveList.truncate(size);
     }
 }
@@ -0,0 +1,105 @@
+package com.jtulayan.chess;
+
+/**
+ * Reusable buffer of moves, encoded as per {@link Move}.
+ *
+ * Callers own the list and pass it to the generators, which fill it in place.
+ * Clearing the list keeps the backing array, so a list can be reused for every
+ * position without allocating.
+ *
+ * @see MoveStack
+ */
+public class MoveList {
+    /**
+     * Enough room for the most moves any legal position can have (218).
+     */
+    public static final int CAPACITY = 256;
+
+    private final int[] moves;
+    private int size = 0;
+
+    public MoveList() {
+        this(CAPACITY);
+    }
+
+    /**
+     * Creates a list with the given capacity.
+     * @param capacity the maximum number of moves the list can hold
+     */
+    public MoveList(int capacity) {
+        moves = new int[capacity];
+    }
+
+    /**
+     * Appends a move to the list.
+     * @param move the encoded move
+     */
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    /**
+     * Swaps two moves in the list.
+     * @param i the index of the first move
+     * @param j the index of the second move
+     */
+    public void swap(int i, int j) {
+        int temp = moves[i];
+        moves[i] = moves[j];
+        moves[j] = temp;
+    }
+
+    /**
+     * Shrinks the list, dropping every move from the given index onwards.
+     * @param size the new size of the list
+     */
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Checks if the list holds the given move.
+     * @param move the encoded move
+     * @return true if the move is in the list
+     */
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move)
+                return true;
+        }
+
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public String toString() {
+        StringBuilder list = new StringBuilder();
+
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                list.append('/');
+            list.append(Move.toString(moves[i]));
+        }
+
+        return list.toString();
+    }
+}
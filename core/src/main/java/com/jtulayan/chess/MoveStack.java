@@ -0,0 +1,38 @@
+package com.jtulayan.chess;
+
+/**
+ * Stack of preallocated {@link MoveList}s, one per ply of a search.
+ *
+ * Each ply takes its own list from the stack, so a search never allocates
+ * move buffers and deeper plies never overwrite the lists of shallower ones.
+ */
+public class MoveStack {
+    private final MoveList[] lists;
+
+    /**
+     * Creates a stack deep enough for the given number of plies.
+     * @param maxPly the maximum ply the stack can hold lists for
+     */
+    public MoveStack(int maxPly) {
+        lists = new MoveList[maxPly];
+
+        for (int i = 0; i < maxPly; i++)
+            lists[i] = new MoveList();
+    }
+
+    /**
+     * Gets the cleared list for a ply.
+     * @param ply the ply to get the list for
+     * @return the empty list reserved for that ply
+     */
+    public MoveList get(int ply) {
+        MoveList list = lists[ply];
+        list.clear();
+
+        return list;
+    }
+
+    public int getMaxPly() {
+        return lists.length;
+    }
+}
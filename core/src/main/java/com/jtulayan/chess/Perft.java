@@ -0,0 +1,392 @@
+package com.jtulayan.chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Performance test, counting every leaf node of the move tree from a position.
+ *
+ * Counts are checked against known results to prove the move generators are
+ * correct, and the time taken gives the generators' throughput.
+ * Only legal moves are generated, so no move is made just to test it.
+ * Reference positions are shipped in {@value #REFERENCE_SUITE}, one per line as
+ * "FEN ;D1 nodes ;D2 nodes ...".
+ *
+ * Deep counts can be split over a {@link ForkJoinPool}, see {@link #runParallel(int, int, ForkJoinPool)},
+ * and node counts of transposed subtrees can be shared through a {@link PerftCache}.
+ *
+ * @see <a href="https://www.chessprogramming.org/Perft_Results">Perft Results</a>
+ */
+public class Perft {
+    public static final String REFERENCE_SUITE = "/perft/standard.epd";
+
+    private static final int MAX_PLY = 64;
+
+    private final Board board;
+    private final boolean collectStats;
+    private final MoveStack moveStack = new MoveStack(MAX_PLY);
+    private PerftCache cache;
+
+    private long nodes, captures, enPassants, castles, promotions, checks;
+
+    /**
+     * Creates a perft runner for the given board, collecting every stat.
+     * The board's position is left untouched after each run.
+     * @param board the board to count moves on
+     */
+    public Perft(Board board) {
+        this(board, true);
+    }
+
+    /**
+     * Creates a perft runner for the given board.
+     * The board's position is left untouched after each run.
+     * @param board        the board to count moves on
+     * @param collectStats if captures, checks, etc. should be counted, or only nodes.
+     *                     Counting only nodes lets the last ply skip making moves.
+     */
+    public Perft(Board board, boolean collectStats) {
+        this.board = board;
+        this.collectStats = collectStats;
+    }
+
+    /**
+     * Sets the table to look up and store subtree node counts in.
+     * Only used when not collecting stats, as only nodes are stored.
+     * @param cache the cache, or null to count every subtree
+     */
+    public void setCache(PerftCache cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Counts the leaf nodes at the given depth.
+     * @param depth the number of plies to search
+     * @return the number of leaf nodes
+     */
+    public long run(int depth) {
+        nodes = captures = enPassants = castles = promotions = checks = 0;
+
+        if (depth == 0)
+            nodes = 1;
+        else
+            perft(depth, 0);
+
+        return nodes;
+    }
+
+    /**
+     * Counts the leaf nodes at the given depth under each legal root move,
+     * printing the count for each one.
+     * @param depth the number of plies to search, at least 1
+     * @return the total number of leaf nodes
+     */
+    public long divide(int depth) {
+        long total = 0;
+        long sumCaptures = 0, sumEnPassants = 0, sumCastles = 0, sumPromotions = 0, sumChecks = 0;
+
+        MoveList list = moveStack.get(0);
+        board.listLegalMoves(list);
+
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+
+            board.makeMove(move);
+            nodes = captures = enPassants = castles = promotions = checks = 0;
+
+            if (depth == 1)
+                countLeaf(move);
+            else
+                perft(depth - 1, 1);
+
+            System.out.println(Move.toCoordinates(move) + ": " + nodes);
+
+            total += nodes;
+            sumCaptures += captures;
+            sumEnPassants += enPassants;
+            sumCastles += castles;
+            sumPromotions += promotions;
+            sumChecks += checks;
+            board.unmakeMove(move);
+        }
+
+        nodes = total;
+        captures = sumCaptures;
+        enPassants = sumEnPassants;
+        castles = sumCastles;
+        promotions = sumPromotions;
+        checks = sumChecks;
+
+        return nodes;
+    }
+
+    /**
+     * Counts the leaf nodes at the given depth, splitting the work over a pool.
+     *
+     * Every root move, and every reply to it for a split depth of 2, is counted
+     * as its own task on its own copy of the board. Only nodes are counted.
+     *
+     * @param depth      the number of plies to search
+     * @param splitDepth the number of plies to split into tasks, 1 or 2
+     * @param pool       the pool to run the tasks on
+     * @return the number of leaf nodes
+     */
+    public long runParallel(int depth, int splitDepth, ForkJoinPool pool) {
+        nodes = captures = enPassants = castles = promotions = checks = 0;
+        nodes = pool.invoke(new PerftTask(new Board(board), depth, Math.max(0, Math.min(splitDepth, depth - 1)), cache));
+
+        return nodes;
+    }
+
+    /**
+     * Counts one subtree, forking a task per move while there are plies left to split.
+     */
+    private static class PerftTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final Board board;
+        private final int depth;
+        private final int splitDepth;
+        private final PerftCache cache;
+
+        PerftTask(Board board, int depth, int splitDepth, PerftCache cache) {
+            this.board = board;
+            this.depth = depth;
+            this.splitDepth = splitDepth;
+            this.cache = cache;
+        }
+
+        @Override
+        protected Long compute() {
+            if (splitDepth == 0) {
+                Perft perft = new Perft(board, false);
+                perft.setCache(cache);
+                return perft.run(depth);
+            }
+
+            MoveList list = new MoveList();
+            board.listLegalMoves(list);
+
+            List<PerftTask> tasks = new ArrayList<PerftTask>(list.size());
+            for (int i = 0; i < list.size(); i++) {
+                Board child = new Board(board);
+                child.makeMove(list.get(i));
+                tasks.add(new PerftTask(child, depth - 1, splitDepth - 1, cache));
+            }
+
+            long total = 0;
+            for (PerftTask task : invokeAll(tasks))
+                total += task.join();
+
+            return total;
+        }
+    }
+
+    private void perft(int depth, int ply) {
+        // Transposed subtrees only need counting once
+        long key = board.hash();
+        boolean cached = cache != null && !collectStats && depth > 1;
+        if (cached) {
+            long count = cache.probe(key, depth);
+            if (count >= 0) {
+                nodes += count;
+                return;
+            }
+        }
+        long before = nodes;
+
+        MoveList list = moveStack.get(ply);
+        board.listLegalMoves(list);
+
+        // Without stats to collect, the last ply is just the number of legal moves
+        if (depth == 1 && !collectStats) {
+            nodes += list.size();
+            return;
+        }
+
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+
+            board.makeMove(move);
+            if (depth == 1)
+                countLeaf(move);
+            else
+                perft(depth - 1, ply + 1);
+            board.unmakeMove(move);
+        }
+
+        if (cached)
+            cache.store(key, depth, nodes - before);
+    }
+
+    /**
+     * Tallies a leaf node, after its move has been made.
+     */
+    private void countLeaf(int move) {
+        int flags = Move.getFlags(move);
+
+        nodes++;
+        if (Move.isCapture(move))
+            captures++;
+        if (flags == (MoveGenerators.F_CAPTURE | MoveGenerators.F_SPECIAL_0))
+            enPassants++;
+        if (flags == MoveGenerators.F_SPECIAL_1 || flags == (MoveGenerators.F_SPECIAL_1 | MoveGenerators.F_SPECIAL_0))
+            castles++;
+        if (Move.isPromotion(move))
+            promotions++;
+        if (board.isInCheck(board.isWhiteTurn()))
+            checks++;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getCaptures() {
+        return captures;
+    }
+
+    public long getEnPassants() {
+        return enPassants;
+    }
+
+    public long getCastles() {
+        return castles;
+    }
+
+    public long getPromotions() {
+        return promotions;
+    }
+
+    public long getChecks() {
+        return checks;
+    }
+
+    /**
+     * Runs every reference position up to the given depth, checking each count.
+     * @param maxDepth the deepest depth to check for each position
+     * @return true if every count matched
+     * @throws IOException if the reference suite could not be read
+     */
+    public static boolean runReferenceSuite(int maxDepth) throws IOException {
+        return runReferenceSuite(maxDepth, null);
+    }
+
+    /**
+     * Runs every reference position up to the given depth, checking each count.
+     * @param maxDepth the deepest depth to check for each position
+     * @param pool     the pool to split each count over, or null to count on this thread
+     * @return true if every count matched
+     * @throws IOException if the reference suite could not be read
+     */
+    public static boolean runReferenceSuite(int maxDepth, ForkJoinPool pool) throws IOException {
+        boolean passed = true;
+
+        InputStream in = Perft.class.getResourceAsStream(REFERENCE_SUITE);
+        if (in == null)
+            throw new IOException("Reference suite not found! Was " + REFERENCE_SUITE);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty())
+                    continue;
+
+                String[] fields = line.split(";");
+                String fen = fields[0].trim();
+                Board board = new Board();
+                board.restore(new Board.Memento(fen));
+                Perft perft = new Perft(board, false);
+
+                System.out.println(fen);
+                for (int i = 1; i < fields.length; i++) {
+                    String[] entry = fields[i].trim().split(" ");
+                    int depth = Integer.parseInt(entry[0].substring(1));
+                    long expected = Long.parseLong(entry[1]);
+
+                    if (depth > maxDepth)
+                        break;
+
+                    long start = System.nanoTime();
+                    long actual = pool == null ? perft.run(depth) : perft.runParallel(depth, 2, pool);
+                    long elapsed = System.nanoTime() - start;
+
+                    boolean matches = actual == expected;
+                    passed &= matches;
+                    System.out.println("  depth " + depth + ": " + actual + (matches ? " OK" : " FAIL, expected " + expected)
+                        + " (" + nodesPerSecond(actual, elapsed) + " nps)");
+                }
+            }
+        }
+
+        return passed;
+    }
+
+    private static long nodesPerSecond(long nodes, long nanos) {
+        return nanos == 0 ? 0 : nodes * 1000000000L / nanos;
+    }
+
+    /**
+     * Usage: "Perft depth [FEN]" to divide a position,
+     * "Perft parallel depth [FEN]" to count a position on every core with a hash cache,
+     * or "Perft suite [maxDepth] [parallel]" to check the reference positions.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && "suite".equals(args[0])) {
+            int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+            boolean parallel = args.length > 2 && "parallel".equals(args[2]);
+            System.exit(runReferenceSuite(maxDepth, parallel ? ForkJoinPool.commonPool() : null) ? 0 : 1);
+        }
+
+        if (args.length > 1 && "parallel".equals(args[0])) {
+            int depth = Integer.parseInt(args[1]);
+            Board board = new Board();
+            if (args.length > 2) {
+                String fen = args[2];
+                for (int i = 3; i < args.length; i++)
+                    fen += " " + args[i];
+                board.restore(new Board.Memento(fen));
+            }
+
+            Perft perft = new Perft(board, false);
+            perft.setCache(new PerftCache(256));
+            long start = System.nanoTime();
+            perft.runParallel(depth, 2, ForkJoinPool.commonPool());
+            long elapsed = System.nanoTime() - start;
+
+            System.out.println("Nodes:      " + perft.getNodes());
+            System.out.println("Nodes/sec:  " + nodesPerSecond(perft.getNodes(), elapsed));
+            return;
+        }
+
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        Board board = new Board();
+        if (args.length > 1) {
+            String fen = args[1];
+            for (int i = 2; i < args.length; i++)
+                fen += " " + args[i];
+            board.restore(new Board.Memento(fen));
+        }
+
+        Perft perft = new Perft(board);
+        long start = System.nanoTime();
+        perft.divide(depth);
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println();
+        System.out.println("Nodes:      " + perft.getNodes());
+        System.out.println("Captures:   " + perft.getCaptures());
+        System.out.println("E.p.:       " + perft.getEnPassants());
+        System.out.println("Castles:    " + perft.getCastles());
+        System.out.println("Promotions: " + perft.getPromotions());
+        System.out.println("Checks:     " + perft.getChecks());
+        System.out.println("Nodes/sec:  " + nodesPerSecond(perft.getNodes(), elapsed));
+    }
+}
@@ -0,0 +1,82 @@
+package com.jtulayan.chess;
+
+import java.util.Arrays;
+
+/**
+ * Hash table of perft node counts, keyed by position and remaining depth.
+ *
+ * Positions reached by different move orders have equal Zobrist keys, so a
+ * subtree only has to be counted once per depth. Entries are kept in two
+ * primitive arrays and are always replaced. The table is shared by every perft
+ * task without locking: each key is stored XORed with its data, so an entry
+ * torn by two threads writing it at once is treated as missing.
+ *
+ * @see <a href="https://www.chessprogramming.org/Perft#Hashing">Perft Hashing</a>
+ */
+public class PerftCache {
+    private static final int ENTRY_BYTES = 16;
+    private static final long COUNT_MASK = (1L << 56) - 1;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+
+    /**
+     * Creates a cache of the given size.
+     * @param megabytes the size of the cache, rounded down to a power of two entries
+     */
+    public PerftCache(int megabytes) {
+        long entries = Long.highestOneBit(Math.max(1L, (long)megabytes * 1024 * 1024 / ENTRY_BYTES));
+        entries = Math.min(entries, 1L << 30);
+
+        keys = new long[(int)entries];
+        data = new long[(int)entries];
+        mask = (int)entries - 1;
+    }
+
+    /**
+     * Looks up the node count of a position.
+     * @param key   the hash of the position
+     * @param depth the depth the position was counted to
+     * @return the node count, or -1 if it isn't stored
+     */
+    public long probe(long key, int depth) {
+        int i = index(key);
+        long entry = data[i];
+
+        if ((keys[i] ^ entry) != key || entry >>> 56 != depth)
+            return -1;
+
+        return entry & COUNT_MASK;
+    }
+
+    /**
+     * Stores the node count of a position.
+     * @param key   the hash of the position
+     * @param depth the depth the position was counted to, up to 255
+     * @param nodes the node count
+     */
+    public void store(long key, int depth, long nodes) {
+        int i = index(key);
+        long entry = ((long)depth << 56) | (nodes & COUNT_MASK);
+
+        keys[i] = key ^ entry;
+        data[i] = entry;
+    }
+
+    /**
+     * Discards every entry.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+    }
+
+    public int getSize() {
+        return keys.length;
+    }
+
+    private int index(long key) {
+        return (int)(key ^ (key >>> 32)) & mask;
+    }
+}
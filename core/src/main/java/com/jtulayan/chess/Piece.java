@@ -0,0 +1,77 @@
+package com.jtulayan.chess;
+
+/**
+ * Class that contains the integer codes used for pieces on the board.
+ *
+ * A piece code is its type in the lower three bits, with {@link #BLACK}
+ * set for black pieces. Codes double as indices into the board's bitboards.
+ */
+public final class Piece {
+    // Piece types
+    public static final int
+        EMPTY = 0,
+        PAWN = 1,
+        KNIGHT = 2,
+        BISHOP = 3,
+        ROOK = 4,
+        QUEEN = 5,
+        KING = 6;
+
+    // Color bit
+    public static final int
+        WHITE = 0,
+        BLACK = 8;
+
+    private static final String CHARS = " PNBRQK  pnbrqk ";
+
+    /**
+     * Gets the type of the piece, ignoring its color
+     * @param piece the piece code
+     * @return one of the piece type constants
+     */
+    public static int getType(int piece) {
+        return piece & 7;
+    }
+
+    /**
+     * Checks if the given piece is white
+     * @param piece the piece code
+     * @return true if the piece is white, false if it's black or empty
+     */
+    public static boolean isWhite(int piece) {
+        return piece != EMPTY && (piece & BLACK) == 0;
+    }
+
+    /**
+     * Creates a piece code given the type and color
+     * @param type    the piece type
+     * @param isWhite if the piece is white
+     * @return the piece code
+     */
+    public static int make(int type, boolean isWhite) {
+        return isWhite ? type : type | BLACK;
+    }
+
+    /**
+     * Gets the FEN character of a piece
+     * @param piece the piece code
+     * @return the FEN character, or ' ' if empty
+     */
+    public static char toChar(int piece) {
+        return CHARS.charAt(piece);
+    }
+
+    /**
+     * Gets the piece code for a FEN character
+     * @param c the FEN character
+     * @return the piece code, or EMPTY if the character is not a piece
+     */
+    public static int fromChar(char c) {
+        int piece = CHARS.indexOf(c);
+        return piece < 0 || c == ' ' ? EMPTY : piece;
+    }
+
+    private Piece() {
+        // Never be able to construct this class, this is just a utility class.
+    }
+}
@@ -0,0 +1,92 @@
+package com.jtulayan.chess;
+
+/**
+ * Class containing the random keys used to hash board positions.
+ *
+ * A position's key is the XOR of a key for every piece on its tile, plus keys
+ * for the side to move, the castling rights and the en passant file. Since XOR
+ * undoes itself, {@link Board} can update its key with a few XORs per move.
+ * Keys are generated from a fixed seed, so hashes are stable across runs.
+ *
+ * @see <a href="https://www.chessprogramming.org/Zobrist_Hashing">Zobrist Hashing</a>
+ */
+public final class Zobrist {
+    private static final long[][] PIECES = new long[16][64];
+    private static final long[] CASTLES = new long[16];
+    private static final long[] EN_PASSANT = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        // xorshift64*, seeded so the keys are the same on every run
+        long seed = 0x9E3779B97F4A7C15L;
+
+        for (int piece = 0; piece < 16; piece++) {
+            for (int tile = 0; tile < 64; tile++) {
+                seed = next(seed);
+                PIECES[piece][tile] = seed * 0x2545F4914F6CDD1DL;
+            }
+        }
+
+        for (int i = 0; i < 16; i++) {
+            seed = next(seed);
+            CASTLES[i] = seed * 0x2545F4914F6CDD1DL;
+        }
+
+        for (int i = 0; i < 8; i++) {
+            seed = next(seed);
+            EN_PASSANT[i] = seed * 0x2545F4914F6CDD1DL;
+        }
+
+        seed = next(seed);
+        BLACK_TO_MOVE = seed * 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * Gets the key of a piece on a tile.
+     * @param piece the piece code
+     * @param tile  the index of the tile
+     * @return the key
+     */
+    public static long piece(int piece, int tile) {
+        return PIECES[piece][tile];
+    }
+
+    /**
+     * Gets the key of a set of castling rights.
+     * @param castles the castling rights, KQkq = 0x8421
+     * @return the key
+     */
+    public static long castles(int castles) {
+        return CASTLES[castles];
+    }
+
+    /**
+     * Gets the key of an en passant tile.
+     * Only the file is hashed, as the rank follows from the side to move.
+     * @param tile the index of the en passant tile, or -1 for none
+     * @return the key, or 0 if there is no en passant tile
+     */
+    public static long enPassant(int tile) {
+        return tile < 0 ? 0L : EN_PASSANT[tile & 7];
+    }
+
+    /**
+     * Gets the key XORed in when it is black's turn.
+     * @return the key
+     */
+    public static long blackToMove() {
+        return BLACK_TO_MOVE;
+    }
+
+    private static long next(long x) {
+        x ^= x >>> 12;
+        x ^= x << 25;
+        x ^= x >>> 27;
+
+        return x;
+    }
+
+    private Zobrist() {
+        // Never be able to construct this class, this is just a utility class.
+    }
+}
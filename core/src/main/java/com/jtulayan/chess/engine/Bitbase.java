@@ -0,0 +1,193 @@
+package com.jtulayan.chess.engine;
+
+import com.jtulayan.chess.Piece;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Win/draw bitbase of one endgame, memory-mapped from a file written by {@link BitbaseGenerator}.
+ *
+ * An endgame is a lone king against a king and up to {@value #MAX_PIECES} other
+ * pieces, named like "KBNK". The side with the pieces is the strong side, and
+ * is stored as white; positions with black as the strong side are probed with
+ * the board mirrored. The weak side can never win, so one bit per position is
+ * enough: set if the strong side wins, clear if it's a draw.
+ *
+ * Positions are indexed arithmetically, with no lookup tables:
+ * side to move, strong king, weak king, then each piece's tile, 6 bits per tile.
+ * Pieces are ordered strongest first, as in the name. Illegal positions are stored as draws.
+ *
+ * The file is an 8 byte header, "GCBB", the piece count and the piece types,
+ * followed by the bits as big-endian longs, bit {@code index & 63} of long {@code index >>> 6}.
+ */
+public class Bitbase implements Closeable {
+    public static final int MAX_PIECES = 2;
+    public static final String EXTENSION = ".bb";
+
+    static final int HEADER_BYTES = 8;
+    static final int MAGIC = ('G' << 24) | ('C' << 16) | ('B' << 8) | 'B';
+
+    private static final String PIECE_CHARS = " PNBRQ";
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer bits;
+    private final int[] types;
+
+    /**
+     * Opens a bitbase, mapping it into memory.
+     * @param path the bitbase file
+     * @throws IOException if the bitbase could not be opened, mapped, or is invalid
+     */
+    public Bitbase(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            long length = file.length();
+            if (length < HEADER_BYTES)
+                throw new IOException("Invalid bitbase length! Was " + length);
+
+            bits = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (bits.getInt(0) != MAGIC)
+                throw new IOException("Invalid bitbase header! Found " + Integer.toHexString(bits.getInt(0)));
+
+            int count = bits.get(4);
+            if (count < 1 || count > MAX_PIECES)
+                throw new IOException("Invalid bitbase piece count! Was " + count);
+
+            types = new int[count];
+            for (int i = 0; i < count; i++)
+                types[i] = bits.get(5 + i);
+
+            if (length != HEADER_BYTES + getByteCount(count))
+                throw new IOException("Invalid bitbase length! Was " + length);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks if the strong side wins a position.
+     * @param index the index of the position, see {@link #index(boolean, int, int, int, int)}
+     * @return true if it's a win, false if it's a draw
+     */
+    public boolean isWin(int index) {
+        return (bits.getLong(HEADER_BYTES + ((index >>> 6) << 3)) >>> (index & 63) & 1L) != 0L;
+    }
+
+    /**
+     * Gets the types of the strong side's pieces, other than its king.
+     * @return the piece types, strongest first
+     */
+    public int[] getTypes() {
+        return types.clone();
+    }
+
+    public String getName() {
+        return name(types);
+    }
+
+    @Override
+    public void close() throws IOException {
+        // The mapping itself is released once it's garbage collected
+        file.close();
+    }
+
+    /**
+     * Computes the index of a position, with the strong side as white.
+     * @param strongToMove if the strong side is to move
+     * @param strongKing   the tile of the strong side's king
+     * @param weakKing     the tile of the weak side's king
+     * @param tile0        the tile of the strongest piece
+     * @param tile1        the tile of the second piece, or -1 if there is one piece
+     * @return the index of the position
+     */
+    public static int index(boolean strongToMove, int strongKing, int weakKing, int tile0, int tile1) {
+        int index = ((((strongToMove ? 0 : 1) << 6 | strongKing) << 6 | weakKing) << 6) | tile0;
+
+        return tile1 < 0 ? index : index << 6 | tile1;
+    }
+
+    /**
+     * Gets the number of positions in an endgame.
+     * @param count the number of pieces other than the kings
+     * @return the number of positions
+     */
+    static int getPositionCount(int count) {
+        return 2 << (6 * (count + 2));
+    }
+
+    static int getByteCount(int count) {
+        return Math.max(8, getPositionCount(count) >>> 3);
+    }
+
+    /**
+     * Packs the types of an endgame's pieces into a small number, for lookup tables.
+     * @param type0 the type of the strongest piece
+     * @param type1 the type of the second piece, or 0 if there is one piece
+     * @return the signature, under 64
+     */
+    static int signature(int type0, int type1) {
+        return type0 << 3 | type1;
+    }
+
+    /**
+     * Names an endgame, such as "KBNK".
+     * @param types the strong side's piece types, strongest first
+     * @return the name
+     */
+    public static String name(int[] types) {
+        StringBuilder name = new StringBuilder("K");
+        for (int type : types)
+            name.append(PIECE_CHARS.charAt(type));
+
+        return name.append('K').toString();
+    }
+
+    /**
+     * Reads an endgame name, such as "KBNK".
+     * @param name the name, a king and its pieces against a lone king
+     * @return the strong side's piece types, strongest first
+     */
+    public static int[] parse(String name) {
+        String pieces = name.trim().toUpperCase();
+        if (pieces.length() < 3 || pieces.length() > MAX_PIECES + 3 || pieces.charAt(0) != 'K' || !pieces.endsWith("K"))
+            throw new IllegalArgumentException("Endgame must be a king and up to " + MAX_PIECES + " pieces against a king! Was " + name);
+
+        int[] types = new int[pieces.length() - 2];
+        for (int i = 0; i < types.length; i++) {
+            int type = PIECE_CHARS.indexOf(pieces.charAt(i + 1));
+            if (type < Piece.PAWN)
+                throw new IllegalArgumentException("Endgame has an invalid piece! Found " + pieces.charAt(i + 1));
+            types[i] = type;
+        }
+
+        sort(types, null);
+        return types;
+    }
+
+    /**
+     * Orders pieces strongest first, moving their tiles with them.
+     * @param types the piece types
+     * @param tiles the tiles of the pieces, or null
+     */
+    static void sort(int[] types, int[] tiles) {
+        for (int i = 1; i < types.length; i++) {
+            for (int j = i; j > 0 && types[j] > types[j - 1]; j--) {
+                int type = types[j];
+                types[j] = types[j - 1];
+                types[j - 1] = type;
+
+                if (tiles != null) {
+                    int tile = tiles[j];
+                    tiles[j] = tiles[j - 1];
+                    tiles[j - 1] = tile;
+                }
+            }
+        }
+    }
+}
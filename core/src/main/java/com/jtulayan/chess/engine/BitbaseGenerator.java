@@ -0,0 +1,414 @@
+package com.jtulayan.chess.engine;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Move;
+import com.jtulayan.chess.MoveList;
+import com.jtulayan.chess.Piece;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates {@link Bitbase} files by iterating to a fixed point over every position of an endgame.
+ *
+ * Every position is first set up on a {@link Board} to throw out the illegal
+ * ones and score mates and stalemates. Then each pass looks at the positions
+ * not yet known to be won: with the strong side to move, a position is won if
+ * any legal move reaches a won position, and with the weak side to move, if
+ * every legal move does. Passes repeat until one finds nothing new, and
+ * whatever is left is a draw. Captures and promotions lead into smaller
+ * endgames, which are generated first and kept in memory.
+ *
+ * Each pass is split into chunks of positions shared by a pool of threads. A
+ * position is only ever written by the thread that owns its chunk, and a win
+ * read early or late from another chunk is still a win, so the passes need no
+ * locking.
+ *
+ * Generation is meant to be run offline, such as "BitbaseGenerator bitbases KPK KRK KQK KBNK".
+ */
+public class BitbaseGenerator {
+    private static final byte
+        UNKNOWN = 0,
+        WIN = 1,
+        DRAW = 2,
+        INVALID = 3;
+
+    private static final int CHUNK_SIZE = 1 << 14;
+    private static final int[] PROMOTIONS = {Piece.QUEEN, Piece.ROOK, Piece.BISHOP, Piece.KNIGHT};
+
+    private final int threads;
+    private final Map<String, Table> tables = new LinkedHashMap<String, Table>();
+
+    /**
+     * Creates a generator.
+     * @param threads the number of threads to generate on
+     */
+    public BitbaseGenerator(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Thread count must be positive! Was " + threads);
+
+        this.threads = threads;
+    }
+
+    /**
+     * Generates an endgame, and every smaller endgame it can turn into.
+     * Generated endgames are kept, so each is only generated once.
+     * @param name the endgame, such as "KBNK"
+     */
+    public void generate(String name) {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            generate(Bitbase.parse(name), pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Writes every generated endgame to a directory, one file per endgame.
+     * @param directory the directory to write the ".bb" files to
+     * @throws IOException if a file could not be written
+     */
+    public void write(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Bitbase directory could not be created! Was " + directory);
+
+        for (Table table : tables.values())
+            table.write(new File(directory, table.name + Bitbase.EXTENSION));
+    }
+
+    private Table generate(int[] types, ExecutorService pool) {
+        String name = Bitbase.name(types);
+        Table table = tables.get(name);
+        if (table != null)
+            return table;
+
+        table = new Table(types);
+
+        // Smaller endgames have to be finished before this one can look into them
+        for (int i = 0; i < types.length; i++) {
+            if (types.length > 1)
+                table.removed[i] = generate(without(types, i), pool);
+
+            if (types[i] == Piece.PAWN) {
+                for (int p = 0; p < PROMOTIONS.length; p++) {
+                    int[] promoted = types.clone();
+                    promoted[i] = PROMOTIONS[p];
+                    Bitbase.sort(promoted, null);
+                    table.promoted[i][p] = generate(promoted, pool);
+                }
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        int passes = 0;
+
+        runPass(table, true, pool);
+        while (runPass(table, false, pool))
+            passes++;
+
+        System.out.println(name + ": " + table.count(WIN) + " wins, " + table.count(DRAW) + " draws, "
+            + table.count(INVALID) + " illegal in " + passes + " passes ("
+            + (System.currentTimeMillis() - start) + " ms)");
+
+        tables.put(name, table);
+        return table;
+    }
+
+    private static int[] without(int[] types, int i) {
+        int[] rest = new int[types.length - 1];
+        for (int j = 0, k = 0; j < types.length; j++) {
+            if (j != i)
+                rest[k++] = types[j];
+        }
+
+        return rest;
+    }
+
+    /**
+     * Runs one pass over every position on every thread.
+     * @return true if any position was newly found to be won
+     */
+    private boolean runPass(Table table, boolean isFirst, ExecutorService pool) {
+        AtomicInteger nextChunk = new AtomicInteger();
+        List<Callable<Boolean>> workers = new ArrayList<Callable<Boolean>>(threads);
+        for (int i = 0; i < threads; i++)
+            workers.add(new Worker(table, isFirst, nextChunk));
+
+        boolean changed = false;
+        try {
+            for (Future<Boolean> result : pool.invokeAll(workers))
+                changed |= result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Bitbase generation was interrupted! Was " + table.name, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bitbase generation failed! Was " + table.name, e.getCause());
+        }
+
+        return changed;
+    }
+
+    /**
+     * Every position of one endgame, one byte each while it's being generated.
+     */
+    private static class Table {
+        final String name;
+        final int[] types;
+        final byte[] states;
+        final Table[] removed;
+        final Table[][] promoted;
+
+        Table(int[] types) {
+            this.name = Bitbase.name(types);
+            this.types = types;
+            states = new byte[Bitbase.getPositionCount(types.length)];
+            removed = new Table[types.length];
+            promoted = new Table[types.length][PROMOTIONS.length];
+        }
+
+        boolean isWin(boolean strongToMove, int strongKing, int weakKing, int tile0, int tile1) {
+            return states[Bitbase.index(strongToMove, strongKing, weakKing, tile0, tile1)] == WIN;
+        }
+
+        long count(byte state) {
+            long count = 0;
+            for (byte s : states) {
+                if (s == state || state == DRAW && s == UNKNOWN)
+                    count++;
+            }
+
+            return count;
+        }
+
+        void write(File file) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                out.writeInt(Bitbase.MAGIC);
+                out.writeByte(types.length);
+                for (int i = 0; i < Bitbase.HEADER_BYTES - 5; i++)
+                    out.writeByte(i < types.length ? types[i] : 0);
+
+                long word = 0L;
+                for (int i = 0; i < states.length; i++) {
+                    if (states[i] == WIN)
+                        word |= 1L << (i & 63);
+                    if ((i & 63) == 63) {
+                        out.writeLong(word);
+                        word = 0L;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes chunks of positions until there are none left, with its own board to set them up on.
+     */
+    private static class Worker implements Callable<Boolean> {
+        private final Table table;
+        private final boolean isFirst;
+        private final AtomicInteger nextChunk;
+        private final Board board = new Board();
+        private final MoveList list = new MoveList();
+        private final int[] tiles = new int[Bitbase.MAX_PIECES];
+
+        private boolean strongToMove;
+        private int strongKing;
+        private int weakKing;
+
+        Worker(Table table, boolean isFirst, AtomicInteger nextChunk) {
+            this.table = table;
+            this.isFirst = isFirst;
+            this.nextChunk = nextChunk;
+        }
+
+        @Override
+        public Boolean call() {
+            byte[] states = table.states;
+            boolean changed = false;
+
+            for (int start = nextChunk.getAndIncrement() * CHUNK_SIZE; start < states.length;
+                 start = nextChunk.getAndIncrement() * CHUNK_SIZE) {
+                int end = Math.min(states.length, start + CHUNK_SIZE);
+
+                for (int index = start; index < end; index++) {
+                    if (states[index] != UNKNOWN)
+                        continue;
+
+                    byte state = isFirst ? classify(index) : search(index);
+                    if (state != UNKNOWN) {
+                        states[index] = state;
+                        changed = true;
+                    }
+                }
+            }
+
+            return changed;
+        }
+
+        /**
+         * Throws out illegal positions and scores positions without moves.
+         */
+        private byte classify(int index) {
+            decode(index);
+
+            long seen = 1L << strongKing | 1L << weakKing;
+            if (Long.bitCount(seen) != 2)
+                return INVALID;
+
+            for (int i = 0; i < table.types.length; i++) {
+                long bit = 1L << tiles[i];
+                if ((seen & bit) != 0L)
+                    return INVALID;
+                if (table.types[i] == Piece.PAWN && (tiles[i] < 8 || tiles[i] >= 56))
+                    return INVALID;
+                seen |= bit;
+            }
+
+            setUp();
+            // The side that just moved can't have left its king in check
+            if (board.isInCheck(!board.isWhiteTurn()))
+                return INVALID;
+
+            list.clear();
+            board.listLegalMoves(list);
+            if (list.size() == 0)
+                return !strongToMove && board.isInCheck(false) ? WIN : DRAW;
+
+            return UNKNOWN;
+        }
+
+        /**
+         * Looks one move ahead into the positions found so far.
+         */
+        private byte search(int index) {
+            decode(index);
+            setUp();
+
+            list.clear();
+            board.listLegalMoves(list);
+
+            for (int i = 0; i < list.size(); i++) {
+                boolean wins = isWinAfter(list.get(i));
+
+                if (strongToMove && wins)
+                    return WIN;
+                if (!strongToMove && !wins)
+                    return UNKNOWN;
+            }
+
+            return strongToMove ? UNKNOWN : WIN;
+        }
+
+        /**
+         * Checks if the strong side wins after a move, without making it.
+         */
+        private boolean isWinAfter(int move) {
+            int from = Move.getFrom(move);
+            int to = Move.getTo(move);
+            int tile0 = tiles[0];
+            int tile1 = table.types.length > 1 ? tiles[1] : -1;
+
+            if (!strongToMove) {
+                if (!Move.isCapture(move))
+                    return table.isWin(true, strongKing, to, tile0, tile1);
+
+                // A capture leaves the other piece, if there is one
+                if (tile1 < 0)
+                    return false;
+                return to == tile0
+                    ? table.removed[0].isWin(true, strongKing, to, tile1, -1)
+                    : table.removed[1].isWin(true, strongKing, to, tile0, -1);
+            }
+
+            if (from == strongKing)
+                return table.isWin(false, to, weakKing, tile0, tile1);
+
+            int moved = from == tile0 ? 0 : 1;
+            if (moved == 0)
+                tile0 = to;
+            else
+                tile1 = to;
+
+            if (!Move.isPromotion(move))
+                return table.isWin(false, strongKing, weakKing, tile0, tile1);
+
+            int type = Move.getPromotionType(move);
+            int p = 0;
+            while (PROMOTIONS[p] != type)
+                p++;
+
+            // The promoted piece may now outrank the other one
+            int type0 = moved == 0 ? type : table.types[0];
+            int type1 = moved == 1 ? type : tile1 < 0 ? 0 : table.types[1];
+            if (type1 > type0) {
+                int tile = tile0;
+                tile0 = tile1;
+                tile1 = tile;
+            }
+            return table.promoted[moved][p].isWin(false, strongKing, weakKing, tile0, tile1);
+        }
+
+        private void decode(int index) {
+            int n = table.types.length;
+
+            for (int i = n - 1; i >= 0; i--) {
+                tiles[i] = index & 63;
+                index >>>= 6;
+            }
+            weakKing = index & 63;
+            strongKing = (index >>> 6) & 63;
+            strongToMove = (index >>> 12) == 0;
+        }
+
+        /**
+         * Sets the decoded position up on the board, with the strong side as white.
+         */
+        private void setUp() {
+            board.clearBoard();
+            board.setPiece(strongKing, Piece.make(Piece.KING, true));
+            board.setPiece(weakKing, Piece.make(Piece.KING, false));
+            for (int i = 0; i < table.types.length; i++)
+                board.setPiece(tiles[i], Piece.make(table.types[i], true));
+
+            board.setState(strongToMove, 0, -1, 0, 1);
+        }
+    }
+
+    /**
+     * Usage: "BitbaseGenerator directory [threads] endgame..."
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: BitbaseGenerator directory [threads] endgame...");
+            System.out.println("  e.g. BitbaseGenerator bitbases KPK KRK KQK KBNK");
+            System.exit(1);
+        }
+
+        int first = 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (args[1].matches("\\d+")) {
+            threads = Integer.parseInt(args[1]);
+            first = 2;
+        }
+
+        BitbaseGenerator generator = new BitbaseGenerator(threads);
+        for (int i = first; i < args.length; i++)
+            generator.generate(args[i]);
+
+        generator.write(new File(args[0]));
+    }
+}
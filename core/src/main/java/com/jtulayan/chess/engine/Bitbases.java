@@ -0,0 +1,134 @@
+package com.jtulayan.chess.engine;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Piece;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Every bitbase in a directory, probed by the material on the board.
+ *
+ * Probing allocates nothing and touches one long of one mapping, so it can be
+ * done at every node with few enough pieces. The bitbases are read-only once
+ * loaded and may be probed by any number of threads at once.
+ *
+ * @see Bitbase
+ */
+public class Bitbases implements Closeable {
+    public static final int MAX_PIECES = Bitbase.MAX_PIECES + 2;
+
+    public static final int
+        LOSS = -1,
+        DRAW = 0,
+        WIN = 1,
+        UNKNOWN = 2;
+
+    private static final int[] TYPES = {Piece.QUEEN, Piece.ROOK, Piece.BISHOP, Piece.KNIGHT, Piece.PAWN};
+
+    private final Bitbase[] tables = new Bitbase[64];
+    private int count;
+
+    /**
+     * Opens every bitbase file in a directory.
+     * @param directory the directory holding the ".bb" files
+     * @throws IOException if the directory or a bitbase could not be read
+     */
+    public Bitbases(File directory) throws IOException {
+        File[] files = directory.listFiles();
+        if (files == null)
+            throw new IOException("Bitbase directory could not be read! Was " + directory);
+
+        try {
+            for (File file : files) {
+                if (file.isFile() && file.getName().endsWith(Bitbase.EXTENSION))
+                    add(new Bitbase(file));
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void add(Bitbase table) throws IOException {
+        int[] types = table.getTypes();
+        int signature = Bitbase.signature(types[0], types.length > 1 ? types[1] : 0);
+
+        if (tables[signature] != null)
+            tables[signature].close();
+        else
+            count++;
+        tables[signature] = table;
+    }
+
+    /**
+     * Looks up the result of the board's position.
+     * Only positions without castling rights, of a lone king against a king and
+     * pieces with a loaded bitbase, are known.
+     * @param b the board to probe
+     * @return {@link #WIN}, {@link #DRAW} or {@link #LOSS} for the side to move, or {@link #UNKNOWN}
+     */
+    public int probe(Board b) {
+        long occupied = b.getOccupied();
+        if (Long.bitCount(occupied) > MAX_PIECES || b.getCastles() != 0)
+            return UNKNOWN;
+
+        boolean strongIsWhite;
+        if (Long.bitCount(b.getOccupancy(false)) == 1)
+            strongIsWhite = true;
+        else if (Long.bitCount(b.getOccupancy(true)) == 1)
+            strongIsWhite = false;
+        else
+            return UNKNOWN;
+
+        // Black's pieces are mirrored to white's side of the board
+        int flip = strongIsWhite ? 0 : 56;
+        int type0 = 0, type1 = 0, tile0 = -1, tile1 = -1;
+
+        for (int type : TYPES) {
+            for (long pieces = b.getBitboard(Piece.make(type, strongIsWhite)); pieces != 0L; pieces &= pieces - 1) {
+                int tile = Long.numberOfTrailingZeros(pieces) ^ flip;
+
+                if (tile0 < 0) {
+                    type0 = type;
+                    tile0 = tile;
+                } else {
+                    type1 = type;
+                    tile1 = tile;
+                }
+            }
+        }
+
+        Bitbase table = tile0 < 0 ? null : tables[Bitbase.signature(type0, type1)];
+        if (table == null)
+            return UNKNOWN;
+
+        boolean strongToMove = b.isWhiteTurn() == strongIsWhite;
+        int index = Bitbase.index(strongToMove, b.getKingTile(strongIsWhite) ^ flip, b.getKingTile(!strongIsWhite) ^ flip, tile0, tile1);
+
+        if (!table.isWin(index))
+            return DRAW;
+
+        return strongToMove ? WIN : LOSS;
+    }
+
+    /**
+     * Gets the number of loaded bitbases.
+     * @return the bitbase count
+     */
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int i = 0; i < tables.length; i++) {
+            if (tables[i] != null) {
+                tables[i].close();
+                tables[i] = null;
+            }
+        }
+        count = 0;
+    }
+}
@@ -0,0 +1,118 @@
+package com.jtulayan.chess.engine;
+
+import com.jtulayan.chess.Attacks;
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Piece;
+import com.jtulayan.chess.PieceSquareTables;
+
+/**
+ * Static evaluation of a position.
+ *
+ * A position is scored with a middlegame and an endgame score, which are blended
+ * by the game phase (tapered evaluation). Material and piece-square terms come
+ * from {@link Board}, which keeps them up to date as moves are made, so only
+ * mobility and king safety are worked out here for each position.
+ *
+ * @see <a href="https://www.chessprogramming.org/Tapered_Eval">Tapered Eval</a>
+ */
+public final class Evaluation {
+    public static final int MAX_MOP_UP = 10 * 6 + 6 * 6;
+
+    private static final long FILE_A = 0x0101010101010101L;
+    private static final long FILE_H = 0x8080808080808080L;
+
+    // Bonus per tile a piece can move to without being taken by a pawn, by piece type
+    private static final int[] MOBILITY_MIDGAME = {0, 0, 4, 5, 2, 1, 0};
+    private static final int[] MOBILITY_ENDGAME = {0, 0, 4, 5, 4, 2, 0};
+
+    // Weight of each attack on the tiles around the king, by attacking piece type
+    private static final int[] KING_ATTACK_WEIGHTS = {0, 0, 2, 2, 3, 5, 0};
+    private static final int MAX_KING_DANGER = 500;
+
+    /**
+     * Scores the position for the side whose turn it is.
+     * @param b the board to evaluate
+     * @return the score in centipawns, positive if the side to move is better
+     */
+    public static int evaluate(Board b) {
+        int midgame = b.getMidgameScore();
+        int endgame = b.getEndgameScore();
+        long occupied = b.getOccupied();
+
+        long whitePawns = b.getBitboard(Piece.PAWN);
+        long blackPawns = b.getBitboard(Piece.PAWN | Piece.BLACK);
+        long whitePawnAttacks = ((whitePawns & ~FILE_A) >>> 9) | ((whitePawns & ~FILE_H) >>> 7);
+        long blackPawnAttacks = ((blackPawns & ~FILE_A) << 7) | ((blackPawns & ~FILE_H) << 9);
+
+        for (int color = 0; color < 2; color++) {
+            boolean isWhite = color == 0;
+            int sign = isWhite ? 1 : -1;
+
+            long safe = ~b.getOccupancy(isWhite) & ~(isWhite ? blackPawnAttacks : whitePawnAttacks);
+            int enemyKing = b.getKingTile(!isWhite);
+            long kingZone = enemyKing < 64 ? Attacks.kingAttacks(enemyKing) | (1L << enemyKing) : 0L;
+            int kingAttackers = 0;
+            int kingAttackUnits = 0;
+
+            for (int type = Piece.KNIGHT; type <= Piece.QUEEN; type++) {
+                for (long pieces = b.getBitboard(Piece.make(type, isWhite)); pieces != 0L; pieces &= pieces - 1) {
+                    long attacks = attacks(type, Long.numberOfTrailingZeros(pieces), occupied);
+                    int mobility = Long.bitCount(attacks & safe);
+
+                    midgame += sign * MOBILITY_MIDGAME[type] * mobility;
+                    endgame += sign * MOBILITY_ENDGAME[type] * mobility;
+
+                    long zoneAttacks = attacks & kingZone;
+                    if (zoneAttacks != 0L) {
+                        kingAttackers++;
+                        kingAttackUnits += KING_ATTACK_WEIGHTS[type] * Long.bitCount(zoneAttacks);
+                    }
+                }
+            }
+
+            // A lone attacker rarely gets anywhere, but danger grows quickly with more
+            if (kingAttackers >= 2)
+                midgame += sign * Math.min(kingAttackUnits * kingAttackUnits / 6, MAX_KING_DANGER);
+        }
+
+        int phase = Math.min(b.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (midgame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+
+        return b.isWhiteTurn() ? score : -score;
+    }
+
+    /**
+     * Scores how close the strong side is to mating a lone king: the further the
+     * lone king is from the center, and the closer the kings are, the higher.
+     * Only meaningful when one side has nothing but its king.
+     * @param b             the board to score
+     * @param strongIsWhite true if white is the side with pieces
+     * @return the score in centipawns, from 0 to {@value #MAX_MOP_UP}, for the strong side
+     */
+    public static int mopUp(Board b, boolean strongIsWhite) {
+        int strongKing = b.getKingTile(strongIsWhite);
+        int weakKing = b.getKingTile(!strongIsWhite);
+        int file = weakKing % 8, rank = weakKing / 8;
+        int centerDistance = Math.max(3 - file, file - 4) + Math.max(3 - rank, rank - 4);
+        int kingDistance = Math.max(Math.abs(file - strongKing % 8), Math.abs(rank - strongKing / 8));
+
+        return 10 * centerDistance + 6 * (7 - kingDistance);
+    }
+
+    private static long attacks(int type, int tile, long occupied) {
+        switch (type) {
+            case Piece.KNIGHT:
+                return Attacks.knightAttacks(tile);
+            case Piece.BISHOP:
+                return Attacks.bishopAttacks(tile, occupied);
+            case Piece.ROOK:
+                return Attacks.rookAttacks(tile, occupied);
+            default:
+                return Attacks.queenAttacks(tile, occupied);
+        }
+    }
+
+    private Evaluation() {
+        // Never be able to construct this class, this is just a utility class.
+    }
+}
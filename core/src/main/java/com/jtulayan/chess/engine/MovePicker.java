@@ -0,0 +1,219 @@
+package com.jtulayan.chess.engine;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Move;
+import com.jtulayan.chess.MoveGenerators;
+import com.jtulayan.chess.MoveList;
+import com.jtulayan.chess.Piece;
+
+/**
+ * Hands out the legal moves of a position one at a time, best guesses first.
+ *
+ * Moves come in stages: the hash move, then captures and promotions by most
+ * valuable victim and least valuable attacker (MVV-LVA), then the killer moves,
+ * then the remaining quiet moves by their history score, and last the captures
+ * that lose material by {@link StaticExchange}. Each stage is only generated
+ * once the one before it runs out, and each stage is only sorted as far as it
+ * is used, so a node that cuts off early never pays for the rest.
+ *
+ * For quiescence search, the picker can instead hand out only the captures and
+ * queen promotions that don't lose material.
+ *
+ * The hash move and killers come from other positions, so they are checked to
+ * be legal here before they are handed out. Each picker is reused for every
+ * node at one ply of the search, and allocates nothing once created.
+ *
+ * @see <a href="https://www.chessprogramming.org/Move_Ordering">Move Ordering</a>
+ */
+public class MovePicker {
+    private static final int
+        STAGE_HASH = 0,
+        STAGE_GENERATE_NOISY = 1,
+        STAGE_NOISY = 2,
+        STAGE_KILLER_1 = 3,
+        STAGE_KILLER_2 = 4,
+        STAGE_GENERATE_QUIET = 5,
+        STAGE_QUIET = 6,
+        STAGE_BAD_NOISY = 7,
+        STAGE_DONE = 8;
+
+    private final MoveList moves = new MoveList();
+    private final int[] scores = new int[MoveList.CAPACITY];
+    private final MoveList badNoisy = new MoveList();
+    private final MoveList scratch = new MoveList();
+
+    private Board board;
+    private int[][] history;
+    private int hashMove;
+    private int killer1;
+    private int killer2;
+    private boolean noisyOnly;
+    private int stage;
+    private int index;
+
+    /**
+     * Starts picking moves for the board's current position.
+     * @param board    the board to pick moves on
+     * @param hashMove the move to try first, or {@link Move#NONE}
+     * @param killer1  a quiet move that caused a cutoff at this ply, or {@link Move#NONE}
+     * @param killer2  an older quiet move that caused a cutoff at this ply, or {@link Move#NONE}
+     * @param history  cutoff scores of quiet moves, by piece code and destination tile
+     */
+    public void init(Board board, int hashMove, int killer1, int killer2, int[][] history) {
+        this.board = board;
+        this.history = history;
+        this.hashMove = hashMove;
+        this.killer1 = killer1;
+        this.killer2 = killer2;
+        noisyOnly = false;
+        stage = STAGE_HASH;
+    }
+
+    /**
+     * Starts picking only the captures and queen promotions for the board's
+     * current position that don't lose material, in MVV-LVA order.
+     * @param board the board to pick moves on
+     */
+    public void initNoisy(Board board) {
+        this.board = board;
+        hashMove = Move.NONE;
+        noisyOnly = true;
+        stage = STAGE_GENERATE_NOISY;
+    }
+
+    /**
+     * Gets the next move to search.
+     * @return the move, or {@link Move#NONE} once every legal move has been picked
+     */
+    // Each stage falls through to the next once it has nothing left to hand out
+    @SuppressWarnings("fallthrough")
+    public int next() {
+        switch (stage) {
+            case STAGE_HASH:
+                stage = STAGE_GENERATE_NOISY;
+                if (isLegal(hashMove))
+                    return hashMove;
+                hashMove = Move.NONE;
+                // fall through
+            case STAGE_GENERATE_NOISY:
+                moves.clear();
+                badNoisy.clear();
+                MoveGenerators.listLegalMoves(board, moves, MoveGenerators.GEN_NOISY);
+                for (int i = 0; i < moves.size(); i++)
+                    scores[i] = scoreNoisy(moves.get(i));
+                index = 0;
+                stage = STAGE_NOISY;
+                // fall through
+            case STAGE_NOISY:
+                while (index < moves.size()) {
+                    int move = pickBest();
+                    if (move == hashMove)
+                        continue;
+                    // Underpromotions only matter when they're quiet enough to be searched fully
+                    if (noisyOnly && Move.isPromotion(move) && Move.getPromotionType(move) != Piece.QUEEN)
+                        continue;
+                    if (StaticExchange.isAtLeast(board, move, 0))
+                        return move;
+                    if (!noisyOnly)
+                        badNoisy.add(move);
+                }
+                if (noisyOnly) {
+                    stage = STAGE_DONE;
+                    return Move.NONE;
+                }
+                stage = STAGE_KILLER_1;
+                // fall through
+            case STAGE_KILLER_1:
+                stage = STAGE_KILLER_2;
+                if (killer1 != hashMove && isQuiet(killer1) && isLegal(killer1))
+                    return killer1;
+                killer1 = Move.NONE;
+                // fall through
+            case STAGE_KILLER_2:
+                stage = STAGE_GENERATE_QUIET;
+                if (killer2 != hashMove && killer2 != killer1 && isQuiet(killer2) && isLegal(killer2))
+                    return killer2;
+                killer2 = Move.NONE;
+                // fall through
+            case STAGE_GENERATE_QUIET:
+                moves.clear();
+                MoveGenerators.listLegalMoves(board, moves, MoveGenerators.GEN_QUIET);
+                for (int i = 0; i < moves.size(); i++) {
+                    int move = moves.get(i);
+                    scores[i] = history[board.pieceAt(Move.getFrom(move))][Move.getTo(move)];
+                }
+                index = 0;
+                stage = STAGE_QUIET;
+                // fall through
+            case STAGE_QUIET:
+                while (index < moves.size()) {
+                    int move = pickBest();
+                    if (move != hashMove && move != killer1 && move != killer2)
+                        return move;
+                }
+                index = 0;
+                stage = STAGE_BAD_NOISY;
+                // fall through
+            case STAGE_BAD_NOISY:
+                if (index < badNoisy.size())
+                    return badNoisy.get(index++);
+                stage = STAGE_DONE;
+                // fall through
+            default:
+                return Move.NONE;
+        }
+    }
+
+    /**
+     * Swaps the best scored move left into the next slot and returns it.
+     */
+    private int pickBest() {
+        int best = index;
+
+        for (int i = index + 1; i < moves.size(); i++) {
+            if (scores[i] > scores[best])
+                best = i;
+        }
+
+        moves.swap(index, best);
+        int score = scores[index];
+        scores[index] = scores[best];
+        scores[best] = score;
+
+        return moves.get(index++);
+    }
+
+    /**
+     * Scores captures by victim first and attacker second, and promotions by the piece promoted to.
+     */
+    private int scoreNoisy(int move) {
+        int score = (Piece.getType(Move.getCaptured(move)) << 4) - Piece.getType(board.pieceAt(Move.getFrom(move)));
+
+        if (Move.isPromotion(move))
+            score += Move.getPromotionType(move) == Piece.QUEEN ? 128 : -128;
+
+        return score;
+    }
+
+    private static boolean isQuiet(int move) {
+        return !Move.isCapture(move) && !Move.isPromotion(move);
+    }
+
+    /**
+     * Checks a move from elsewhere in the tree against the legal moves of its piece here.
+     */
+    private boolean isLegal(int move) {
+        if (move == Move.NONE)
+            return false;
+
+        int from = Move.getFrom(move);
+        int piece = board.pieceAt(from);
+        if (piece == Piece.EMPTY || Piece.isWhite(piece) != board.isWhiteTurn())
+            return false;
+
+        scratch.clear();
+        MoveGenerators.listLegalMoves(board, scratch, MoveGenerators.GEN_ALL, 1L << from);
+
+        return scratch.contains(move);
+    }
+}
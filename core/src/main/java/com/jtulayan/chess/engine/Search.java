@@ -0,0 +1,669 @@
+package com.jtulayan.chess.engine;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Move;
+import com.jtulayan.chess.MoveList;
+
+/**
+ * Negamax alpha-beta search over a {@link Board}.
+ *
+ * The search deepens iteratively, one ply at a time, and searches the principal
+ * variation of the last iteration first. Moves after the first are searched with
+ * a null window, and only re-searched with the full window if they turn out better
+ * (principal variation search). Searching stops at the depth, node or time limit,
+ * or when {@link #stop()} is called from another thread, and the best move of the
+ * last completed iteration is kept.
+ *
+ * Results are kept in a {@link TranspositionTable}, which cuts off positions
+ * already searched deep enough and supplies the best move to try first.
+ * Moves are handed out lazily by a {@link MovePicker} per ply, ordered by the
+ * hash move, killer moves and a history of quiet moves that caused cutoffs.
+ *
+ * Once the depth runs out, a quiescence search carries on through captures and
+ * promotions until the position is quiet, so positions are never scored in the
+ * middle of an exchange. Captures that lose material by {@link StaticExchange}
+ * are pruned there.
+ *
+ * With {@link Bitbases} set, positions they cover are scored from them instead of
+ * searched, as long as the root itself isn't covered. A known win scores
+ * {@link #KNOWN_WIN}, less the plies taken to reach it, plus a mop-up bonus for
+ * driving the lone king to the edge, so the quickest and best placed conversion
+ * is played. Once the root is covered, scoring every node the same would leave the
+ * search no way to make progress, so it searches for mate as usual: the bitbases
+ * only cut off drawn positions, root moves that throw away the result are skipped,
+ * and the mop-up bonus is added to the evaluation of won positions.
+ * Checkmates are found before probing, and probed scores are kept in the table.
+ *
+ * The board is searched in place through make/unmake, and is left as it was found.
+ *
+ * With more than one thread, the search runs lazy SMP: helper threads each search
+ * their own copy of the board, with their own move and undo stacks, and only share
+ * the transposition table. Half of the helpers start a ply deeper, so the threads
+ * spread out over the tree and fill the table with results for each other.
+ * With one thread, searching is fully deterministic.
+ *
+ * @see <a href="https://www.chessprogramming.org/Principal_Variation_Search">Principal Variation Search</a>
+ */
+public class Search {
+    public static final int MAX_PLY = 128;
+
+    public static final int
+        INFINITY = 32000,
+        MATE = 31000,
+        KNOWN_WIN = 10000,
+        DRAW = 0;
+
+    // Not a score any position can have, for when there is none
+    private static final int NO_SCORE = -INFINITY - 1;
+
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final Board board;
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final int[][] killers = new int[MAX_PLY][2];
+    private final int[][] history = new int[16][64];
+    private TranspositionTable transpositionTable;
+    private Bitbases bitbases;
+
+    // Triangular principal variation table
+    private final int[][] pv = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private int[] rootPv = new int[0];
+
+    private int maxDepth = MAX_PLY - 1;
+    private long maxNodes = Long.MAX_VALUE;
+    private int threads = 1;
+
+    // Every thread stops when the main search sets this, checked every few nodes
+    private volatile boolean stopRequested;
+    private volatile boolean pondering;
+    private volatile boolean waitForStop;
+    private final Object stopLock = new Object();
+    private final TimeManager timeManager = new TimeManager();
+    private SearchLimits preparedLimits;
+    private SearchListener listener;
+    private long startTime;
+    private int depthLimit;
+    private long nodeLimit;
+    private Search main = this;
+    private int startDepth = 1;
+
+    private long nodes;
+    private boolean aborted;
+    private int bestMove;
+    private int bestScore;
+    private int completedDepth;
+    private int rootResult = Bitbases.UNKNOWN;
+    private final MoveList evasions = new MoveList();
+
+    /**
+     * Creates a search over the given board, with a 16 MB transposition table.
+     * @param board the board to search
+     */
+    public Search(Board board) {
+        this(board, new TranspositionTable(16));
+    }
+
+    /**
+     * Creates a search over the given board.
+     * @param board              the board to search
+     * @param transpositionTable the table to keep results in
+     */
+    public Search(Board board, TranspositionTable transpositionTable) {
+        this.board = board;
+        this.transpositionTable = transpositionTable;
+
+        for (int i = 0; i < MAX_PLY; i++)
+            pickers[i] = new MovePicker();
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    /**
+     * Sets the endgame bitbases to score positions with.
+     * @param bitbases the bitbases, or null to search every position
+     */
+    public void setBitbases(Bitbases bitbases) {
+        this.bitbases = bitbases;
+    }
+
+    /**
+     * Sets the deepest iteration to search to.
+     * @param maxDepth the depth limit, in plies
+     */
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.max(1, Math.min(maxDepth, MAX_PLY - 1));
+    }
+
+    /**
+     * Sets the number of nodes after which searching stops.
+     * @param maxNodes the node limit
+     */
+    public void setMaxNodes(long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Sets the number of threads to search with.
+     * The node limit only counts the main thread's nodes.
+     * @param threads the thread count, 1 to search on the calling thread alone
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public TimeManager getTimeManager() {
+        return timeManager;
+    }
+
+    /**
+     * Searches the current position for the side whose turn it is,
+     * up to the depth and node limits set on this search.
+     * @return the best move found, or {@link Move#NONE} if there are no legal moves
+     */
+    public int search() {
+        synchronized (stopLock) {
+            timeManager.reset();
+            pondering = false;
+            waitForStop = false;
+            stopRequested = false;
+            preparedLimits = null;
+        }
+
+        return run(maxDepth, maxNodes);
+    }
+
+    /**
+     * Sets up a search with the given limits without running it, and starts its clock.
+     * A controller that runs {@link #search(SearchLimits)} on another thread should call
+     * this first, so a {@link #stop()} or {@link #ponderhit()} sent before that thread
+     * gets going still applies to the search.
+     * @param limits the limits the search will be run with
+     */
+    public void prepare(SearchLimits limits) {
+        synchronized (stopLock) {
+            timeManager.start(limits, board.isWhiteTurn());
+            pondering = limits.isPonder();
+            waitForStop = limits.isInfinite();
+            stopRequested = false;
+            preparedLimits = limits;
+        }
+    }
+
+    /**
+     * Searches the current position for the side whose turn it is, within the given limits.
+     * The depth and node limits set on this search still apply.
+     * <p>
+     * Infinite and pondering searches don't return until {@link #stop()} is called,
+     * or, when pondering, until {@link #ponderhit()} is called and time runs out.
+     * Unless {@link #prepare(SearchLimits)} was already called with the same limits,
+     * the search is set up and its clock started here.
+     * @param limits the limits of the search
+     * @return the best move found, or {@link Move#NONE} if there are no legal moves
+     */
+    public int search(SearchLimits limits) {
+        synchronized (stopLock) {
+            if (preparedLimits != limits)
+                prepare(limits);
+            preparedLimits = null;
+        }
+
+        int move = run(Math.min(maxDepth, Math.max(1, limits.getDepth())), Math.min(maxNodes, limits.getNodes()));
+
+        // Finished early, but the controller still expects to be the one to stop it
+        synchronized (stopLock) {
+            while ((waitForStop || pondering) && !stopRequested) {
+                try {
+                    stopLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        pondering = false;
+        return move;
+    }
+
+    /**
+     * Stops a running search from another thread.
+     * The search returns the best move of its last completed iteration.
+     */
+    public void stop() {
+        synchronized (stopLock) {
+            stopRequested = true;
+            stopLock.notifyAll();
+        }
+    }
+
+    /**
+     * Tells a pondering search that the opponent played the expected move,
+     * so it should carry on searching, now on its own clock.
+     */
+    public void ponderhit() {
+        synchronized (stopLock) {
+            timeManager.ponderhit();
+            pondering = false;
+            stopLock.notifyAll();
+        }
+    }
+
+    public boolean isPondering() {
+        return pondering;
+    }
+
+    /**
+     * Sets the listener to report each completed iteration to.
+     * @param listener the listener, or null for none
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    private int run(int depthLimit, long nodeLimit) {
+        startTime = System.currentTimeMillis();
+        transpositionTable.newSearch();
+        this.depthLimit = depthLimit;
+        this.nodeLimit = nodeLimit;
+
+        if (threads == 1)
+            return iterate();
+
+        Search[] helpers = new Search[threads - 1];
+        Thread[] workers = new Thread[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            final Search helper = new Search(new Board(board), transpositionTable);
+            helper.main = this;
+            helper.bitbases = bitbases;
+            helper.depthLimit = depthLimit;
+            helper.nodeLimit = Long.MAX_VALUE;
+            helper.startDepth = 1 + (i & 1);
+
+            helpers[i] = helper;
+            workers[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    helper.iterate();
+                }
+            }, "search-helper-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        int move = iterate();
+
+        // Leave stopRequested alone so a waiting infinite search still sees the real stop
+        for (Search helper : helpers)
+            helper.stopRequested = true;
+        for (int i = 0; i < workers.length; i++) {
+            try {
+                workers[i].join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            nodes += helpers[i].nodes;
+        }
+
+        return move;
+    }
+
+    /**
+     * Runs the iterative deepening loop on this thread.
+     */
+    private int iterate() {
+        nodes = 0;
+        aborted = false;
+        bestMove = Move.NONE;
+        bestScore = 0;
+        completedDepth = 0;
+        rootPv = new int[0];
+        rootResult = bitbases == null ? Bitbases.UNKNOWN : bitbases.probe(board);
+        ageHistory();
+
+        MoveList rootMoves = new MoveList();
+        board.listLegalMoves(rootMoves);
+        if (rootMoves.isEmpty())
+            return Move.NONE;
+
+        // Always have something to play, even if the first iteration is cut short
+        bestMove = rootMoves.get(0);
+
+        for (int depth = startDepth; depth <= depthLimit; depth++) {
+            int score = negamax(depth, 0, -INFINITY, INFINITY);
+
+            if (aborted)
+                break;
+
+            completedDepth = depth;
+            bestScore = score;
+            rootPv = new int[pvLength[0]];
+            System.arraycopy(pv[0], 0, rootPv, 0, pvLength[0]);
+            if (rootPv.length > 0)
+                bestMove = rootPv[0];
+
+            if (main == this && listener != null)
+                listener.iterationComplete(depth, score, nodes, System.currentTimeMillis() - startTime, rootPv.clone());
+
+            // No point searching deeper once a forced mate is found
+            if (Math.abs(score) >= MATE - MAX_PLY)
+                break;
+
+            if (main == this && !timeManager.canStartIteration())
+                break;
+        }
+
+        return bestMove;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if (depth <= 0)
+            return quiesce(ply, alpha, beta);
+
+        pvLength[ply] = 0;
+
+        if (++nodes >= nodeLimit || ((nodes & 1023) == 0 && shouldStop())) {
+            aborted = true;
+            return 0;
+        }
+
+        if (ply > 0 && (board.getHalfmoveClock() >= 100 || board.isRepetition()))
+            return DRAW;
+
+        if (ply >= MAX_PLY - 1)
+            return evaluate();
+
+        // Cut off with a stored result, except on the principal variation so it stays whole
+        long key = board.hash();
+        long entry = transpositionTable.probe(key);
+        int hashMove = TranspositionTable.getMove(entry);
+        if (entry != 0L && ply > 0 && beta - alpha == 1 && TranspositionTable.getDepth(entry) >= depth) {
+            int score = fromTable(TranspositionTable.getScore(entry), ply);
+            int bound = TranspositionTable.getBound(entry);
+
+            if (bound == TranspositionTable.BOUND_EXACT
+                    || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                    || (bound == TranspositionTable.BOUND_UPPER && score <= alpha))
+                return score;
+        }
+
+        if (bitbases != null && ply > 0 && Long.bitCount(board.getOccupied()) <= Bitbases.MAX_PIECES) {
+            int score = probeBitbases(ply);
+            if (score != NO_SCORE) {
+                transpositionTable.store(key, Move.NONE, toTable(score, ply), depth, TranspositionTable.BOUND_EXACT);
+                return score;
+            }
+        }
+
+        if (hashMove == Move.NONE && ply < rootPv.length)
+            hashMove = rootPv[ply];
+
+        MovePicker picker = pickers[ply];
+        picker.init(board, hashMove, killers[ply][0], killers[ply][1], history);
+
+        int originalAlpha = alpha;
+        int bestMoveHere = Move.NONE;
+        int moveCount = 0;
+
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            int score;
+
+            board.makeMove(move);
+
+            // Inside the bitbases, only search root moves that keep the root's result
+            if (ply == 0 && rootResult != Bitbases.UNKNOWN) {
+                int result = bitbases.probe(board);
+                if (result != Bitbases.UNKNOWN && -result < rootResult) {
+                    board.unmakeMove(move);
+                    continue;
+                }
+            }
+
+            if (moveCount++ == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            } else {
+                score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+                if (score > alpha && score < beta)
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            }
+            board.unmakeMove(move);
+
+            if (aborted)
+                return 0;
+
+            if (score > alpha) {
+                alpha = score;
+                bestMoveHere = move;
+
+                pv[ply][0] = move;
+                System.arraycopy(pv[ply + 1], 0, pv[ply], 1, pvLength[ply + 1]);
+                pvLength[ply] = pvLength[ply + 1] + 1;
+
+                if (alpha >= beta) {
+                    if (!Move.isCapture(move) && !Move.isPromotion(move))
+                        rememberCutoff(move, depth, ply);
+                    break;
+                }
+            }
+        }
+
+        if (moveCount == 0)
+            return board.isInCheck(board.isWhiteTurn()) ? -MATE + ply : DRAW;
+
+        int bound = alpha >= beta ? TranspositionTable.BOUND_LOWER
+            : alpha > originalAlpha ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        transpositionTable.store(key, bestMoveHere, toTable(alpha, ply), depth, bound);
+
+        return alpha;
+    }
+
+    /**
+     * Scores a position from the bitbases.
+     * @return the score for the side to move, or {@link #NO_SCORE} if the position should be searched
+     */
+    private int probeBitbases(int ply) {
+        int result = bitbases.probe(board);
+        if (result == Bitbases.UNKNOWN || (result != Bitbases.DRAW && rootResult != Bitbases.UNKNOWN))
+            return NO_SCORE;
+
+        if (result == Bitbases.DRAW)
+            return DRAW;
+
+        // A lost position may already be mate, which beats any known win
+        boolean isWhite = board.isWhiteTurn();
+        if (result == Bitbases.LOSS && board.isInCheck(isWhite)) {
+            evasions.clear();
+            board.listLegalMoves(evasions);
+            if (evasions.isEmpty())
+                return -MATE + ply;
+        }
+
+        int score = KNOWN_WIN - ply + Evaluation.mopUp(board, result == Bitbases.WIN ? isWhite : !isWhite);
+        return result == Bitbases.WIN ? score : -score;
+    }
+
+    /**
+     * Evaluates the position. When the root is a known win or loss, positions the
+     * bitbases know are won also get the mop-up bonus, so the search heads for mate.
+     */
+    private int evaluate() {
+        int score = Evaluation.evaluate(board);
+        if (rootResult != Bitbases.WIN && rootResult != Bitbases.LOSS)
+            return score;
+
+        boolean isWhite = board.isWhiteTurn();
+        int result = bitbases.probe(board);
+        if (result == Bitbases.WIN)
+            return score + Evaluation.mopUp(board, isWhite);
+        if (result == Bitbases.LOSS)
+            return score - Evaluation.mopUp(board, !isWhite);
+        return score;
+    }
+
+    /**
+     * Checks whether this thread was told to stop, or the main search ran out of time.
+     */
+    private boolean shouldStop() {
+        if (stopRequested || main.stopRequested)
+            return true;
+
+        if (main == this && timeManager.isOutOfTime()) {
+            stopRequested = true;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Searches captures and promotions only, until the position is quiet enough to evaluate.
+     */
+    private int quiesce(int ply, int alpha, int beta) {
+        pvLength[ply] = 0;
+
+        if (++nodes >= nodeLimit || ((nodes & 1023) == 0 && shouldStop())) {
+            aborted = true;
+            return 0;
+        }
+
+        if (board.getHalfmoveClock() >= 100 || board.isRepetition())
+            return DRAW;
+
+        if (ply >= MAX_PLY - 1)
+            return evaluate();
+
+        boolean inCheck = board.isInCheck(board.isWhiteTurn());
+        MovePicker picker = pickers[ply];
+
+        if (inCheck) {
+            // Standing pat isn't an option in check, and every evasion has to be tried to spot mates
+            picker.init(board, Move.NONE, Move.NONE, Move.NONE, history);
+        } else {
+            int standPat = evaluate();
+
+            if (standPat >= beta)
+                return standPat;
+            if (standPat > alpha)
+                alpha = standPat;
+
+            picker.initNoisy(board);
+        }
+
+        int moveCount = 0;
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            moveCount++;
+
+            board.makeMove(move);
+            int score = -quiesce(ply + 1, -beta, -alpha);
+            board.unmakeMove(move);
+
+            if (aborted)
+                return 0;
+
+            if (score > alpha) {
+                alpha = score;
+
+                if (alpha >= beta)
+                    break;
+            }
+        }
+
+        if (inCheck && moveCount == 0)
+            return -MATE + ply;
+
+        return alpha;
+    }
+
+    /**
+     * Keeps a quiet move that caused a cutoff as a killer for its ply, and adds to its history.
+     */
+    private void rememberCutoff(int move, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int[] scores = history[board.pieceAt(Move.getFrom(move))];
+        int to = Move.getTo(move);
+        scores[to] += depth * depth;
+
+        // Keep history scores bounded, while keeping their order
+        if (scores[to] > HISTORY_LIMIT)
+            ageHistory();
+    }
+
+    /**
+     * Halves every history score, so newer cutoffs count for more, and forgets the killers.
+     */
+    private void ageHistory() {
+        for (int[] scores : history) {
+            for (int i = 0; i < scores.length; i++)
+                scores[i] >>= 1;
+        }
+
+        for (int[] pair : killers) {
+            pair[0] = Move.NONE;
+            pair[1] = Move.NONE;
+        }
+    }
+
+    /**
+     * Makes mate and known win scores relative to the position being stored, rather than the root.
+     */
+    private static int toTable(int score, int ply) {
+        if (score >= KNOWN_WIN - MAX_PLY)
+            return score + ply;
+        if (score <= -KNOWN_WIN + MAX_PLY)
+            return score - ply;
+        return score;
+    }
+
+    /**
+     * Makes stored mate and known win scores relative to the root again.
+     */
+    private static int fromTable(int score, int ply) {
+        if (score >= KNOWN_WIN - MAX_PLY)
+            return score - ply;
+        if (score <= -KNOWN_WIN + MAX_PLY)
+            return score + ply;
+        return score;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Gets the score of the best move, from the point of view of the side to move.
+     * @return the score in centipawns, or within {@link #MAX_PLY} of {@link #MATE} for mates
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * Gets the principal variation of the last completed iteration.
+     * @return the expected moves, starting with the best move
+     */
+    public int[] getPrincipalVariation() {
+        return rootPv.clone();
+    }
+}
@@ -0,0 +1,119 @@
+package com.jtulayan.chess.engine;
+
+/**
+ * Limits on a single search, as given by a game clock or a controller.
+ *
+ * Times are in milliseconds, and negative when not given. Any combination
+ * may be set; the search stops at whichever limit it reaches first.
+ */
+public class SearchLimits {
+    private long whiteTime = -1;
+    private long blackTime = -1;
+    private long whiteIncrement = 0;
+    private long blackIncrement = 0;
+    private int movesToGo = 0;
+    private long moveTime = -1;
+    private long nodes = Long.MAX_VALUE;
+    private int depth = Search.MAX_PLY - 1;
+    private boolean infinite = false;
+    private boolean ponder = false;
+
+    /**
+     * Sets the time left on each side's clock.
+     * @param whiteTime the time left for white, in milliseconds
+     * @param blackTime the time left for black, in milliseconds
+     */
+    public void setTime(long whiteTime, long blackTime) {
+        this.whiteTime = whiteTime;
+        this.blackTime = blackTime;
+    }
+
+    /**
+     * Sets the time added to each side's clock after every move.
+     * @param whiteIncrement the increment for white, in milliseconds
+     * @param blackIncrement the increment for black, in milliseconds
+     */
+    public void setIncrement(long whiteIncrement, long blackIncrement) {
+        this.whiteIncrement = whiteIncrement;
+        this.blackIncrement = blackIncrement;
+    }
+
+    /**
+     * Sets the number of moves until the next time control.
+     * @param movesToGo the moves left, or 0 if the rest of the game must be played on the clock
+     */
+    public void setMovesToGo(int movesToGo) {
+        this.movesToGo = movesToGo;
+    }
+
+    /**
+     * Sets an exact amount of time to search for, regardless of the clock.
+     * @param moveTime the time to search, in milliseconds
+     */
+    public void setMoveTime(long moveTime) {
+        this.moveTime = moveTime;
+    }
+
+    public void setNodes(long nodes) {
+        this.nodes = nodes;
+    }
+
+    public void setDepth(int depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Sets whether to search until stopped, ignoring the clock. Depth and node
+     * limits still end the search early, but it doesn't return until stopped.
+     * @param infinite true to search until {@link Search#stop()} is called
+     */
+    public void setInfinite(boolean infinite) {
+        this.infinite = infinite;
+    }
+
+    /**
+     * Sets whether the search ponders on the opponent's time. The clock limits
+     * only start to apply once {@link Search#ponderhit()} is called.
+     * @param ponder true to start the search pondering
+     */
+    public void setPonder(boolean ponder) {
+        this.ponder = ponder;
+    }
+
+    /**
+     * Gets the time left on a side's clock.
+     * @param isWhite true for white's clock
+     * @return the time left in milliseconds, or a negative value if there is no clock
+     */
+    public long getTime(boolean isWhite) {
+        return isWhite ? whiteTime : blackTime;
+    }
+
+    public long getIncrement(boolean isWhite) {
+        return isWhite ? whiteIncrement : blackIncrement;
+    }
+
+    public int getMovesToGo() {
+        return movesToGo;
+    }
+
+    public long getMoveTime() {
+        return moveTime;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public boolean isInfinite() {
+        return infinite;
+    }
+
+    public boolean isPonder() {
+        return ponder;
+    }
+}
@@ -0,0 +1,20 @@
+package com.jtulayan.chess.engine;
+
+/**
+ * Receives progress reports from a running {@link Search}.
+ *
+ * Reports are made on the main search thread, between iterations,
+ * so listeners should return quickly.
+ */
+public interface SearchListener {
+
+    /**
+     * Called each time an iteration of the main search thread completes.
+     * @param depth   the depth just completed, in plies
+     * @param score   the score of the best move, as per {@link Search#getBestScore()}
+     * @param nodes   the nodes searched so far by the main thread
+     * @param elapsed the time since the search started, in milliseconds
+     * @param pv      the principal variation, starting with the best move
+     */
+    void iterationComplete(int depth, int score, long nodes, long elapsed, int[] pv);
+}
@@ -0,0 +1,110 @@
+package com.jtulayan.chess.engine;
+
+import com.jtulayan.chess.Attacks;
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Move;
+import com.jtulayan.chess.Piece;
+
+/**
+ * Static exchange evaluation (SEE) of captures.
+ *
+ * An exchange is played out on the destination tile without making any moves:
+ * each side recaptures with its least valuable attacker, and may stop whenever
+ * carrying on would lose material. Sliders behind the pieces that capture are
+ * uncovered as they go (x-rays). Pins are not taken into account.
+ *
+ * Rather than working out the exact outcome, this only checks whether the
+ * outcome reaches a threshold, which lets most exchanges stop after a step or two.
+ *
+ * @see <a href="https://www.chessprogramming.org/Static_Exchange_Evaluation">Static Exchange Evaluation</a>
+ */
+public final class StaticExchange {
+    /**
+     * Value of each piece type in an exchange, in centipawns.
+     */
+    public static final int[] VALUES = {0, 100, 320, 330, 500, 900, 20000};
+
+    /**
+     * Checks whether a move wins at least the given amount of material once
+     * every profitable recapture on its destination has been played.
+     * Promotions are only assumed to break even.
+     *
+     * @param b         the board, with the move not yet made
+     * @param move      the move to evaluate
+     * @param threshold the material the move has to win, in centipawns
+     * @return true if the exchange comes out at or above the threshold
+     */
+    public static boolean isAtLeast(Board b, int move, int threshold) {
+        if (Move.isPromotion(move))
+            return threshold <= 0;
+
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        long occupied = b.getOccupied() ^ (1L << from);
+
+        // En passant takes a pawn that isn't on the destination tile
+        if (Move.isCapture(move) && b.pieceAt(to) == Piece.EMPTY)
+            occupied ^= 1L << ((from & ~7) | (to & 7));
+
+        // What's gained so far, less the threshold, from the point of view of the side that moved
+        int swap = VALUES[Piece.getType(Move.getCaptured(move))] - threshold;
+        if (swap < 0)
+            return false;
+
+        // Even if the piece that moved is lost for nothing, the move still gains enough
+        swap = VALUES[Piece.getType(b.pieceAt(from))] - swap;
+        if (swap <= 0)
+            return true;
+
+        long diagonals = b.getBitboard(Piece.BISHOP) | b.getBitboard(Piece.BISHOP | Piece.BLACK)
+            | b.getBitboard(Piece.QUEEN) | b.getBitboard(Piece.QUEEN | Piece.BLACK);
+        long orthogonals = b.getBitboard(Piece.ROOK) | b.getBitboard(Piece.ROOK | Piece.BLACK)
+            | b.getBitboard(Piece.QUEEN) | b.getBitboard(Piece.QUEEN | Piece.BLACK);
+        long attackers = b.getAttackers(to, true, occupied) | b.getAttackers(to, false, occupied);
+
+        boolean isWhite = b.isWhiteTurn();
+        int result = 1;
+
+        while (true) {
+            isWhite = !isWhite;
+            attackers &= occupied;
+
+            long own = attackers & b.getOccupancy(isWhite);
+            if (own == 0L)
+                break;
+
+            result ^= 1;
+
+            // Recapture with the least valuable attacker
+            int type = Piece.PAWN;
+            long pieces = 0L;
+            for (; type <= Piece.KING; type++) {
+                pieces = own & b.getBitboard(Piece.make(type, isWhite));
+                if (pieces != 0L)
+                    break;
+            }
+
+            // Capturing with the king is only possible if nothing can take it back
+            if (type == Piece.KING)
+                return (attackers & ~b.getOccupancy(isWhite)) != 0L ? result == 0 : result == 1;
+
+            swap = VALUES[type] - swap;
+            if (swap < result)
+                break;
+
+            occupied ^= pieces & -pieces;
+
+            // Uncover any slider behind the piece that just captured
+            if (type == Piece.PAWN || type == Piece.BISHOP || type == Piece.QUEEN)
+                attackers |= Attacks.bishopAttacks(to, occupied) & diagonals;
+            if (type == Piece.ROOK || type == Piece.QUEEN)
+                attackers |= Attacks.rookAttacks(to, occupied) & orthogonals;
+        }
+
+        return result == 1;
+    }
+
+    private StaticExchange() {
+        // Never be able to construct this class, this is just a utility class.
+    }
+}
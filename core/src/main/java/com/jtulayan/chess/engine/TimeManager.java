@@ -0,0 +1,117 @@
+package com.jtulayan.chess.engine;
+
+/**
+ * Decides how long a search may think for.
+ *
+ * Each search gets two budgets. The optimum time is what the move should take,
+ * and no new iteration is started once half of it is spent, since the next one
+ * would likely take longer than everything before it. The maximum time is a
+ * hard limit at which the search is cut off mid-iteration. Both are kept well
+ * inside the clock, less a fixed overhead for communication and scheduling lag,
+ * so the game is never lost on time.
+ *
+ * Budgets can be read from other threads while the search runs.
+ */
+public class TimeManager {
+    /**
+     * The number of moves the remaining time is split over when the time control doesn't say.
+     */
+    public static final int DEFAULT_MOVES_TO_GO = 30;
+
+    private long moveOverhead = 50;
+
+    private volatile boolean active = false;
+    private volatile long startTime;
+    private volatile long optimumTime;
+    private volatile long maximumTime;
+
+    /**
+     * Sets the time kept in reserve on every move for lag outside the search.
+     * @param moveOverhead the reserve, in milliseconds
+     */
+    public void setMoveOverhead(long moveOverhead) {
+        this.moveOverhead = Math.max(0, moveOverhead);
+    }
+
+    public long getMoveOverhead() {
+        return moveOverhead;
+    }
+
+    /**
+     * Starts the clock for a search, working out the time budgets from the limits.
+     * Searches with no time limit, and searches still pondering, are never timed out.
+     * @param limits  the limits of the search
+     * @param isWhite true if the search is for white
+     */
+    public void start(SearchLimits limits, boolean isWhite) {
+        reset();
+        startTime = System.currentTimeMillis();
+
+        if (limits.isInfinite())
+            return;
+
+        if (limits.getMoveTime() >= 0) {
+            optimumTime = maximumTime = Math.max(1, limits.getMoveTime() - moveOverhead);
+        } else if (limits.getTime(isWhite) >= 0) {
+            long time = Math.max(1, limits.getTime(isWhite) - moveOverhead);
+            long increment = limits.getIncrement(isWhite);
+            int movesToGo = limits.getMovesToGo() > 0 ? limits.getMovesToGo() : DEFAULT_MOVES_TO_GO;
+
+            // Never plan on more than most of what's left, however many moves or how much increment there is
+            maximumTime = Math.max(1, Math.min(time * 4 / 5, (time / movesToGo + increment) * 4));
+            optimumTime = Math.max(1, Math.min(maximumTime, time / movesToGo + increment * 3 / 4));
+        } else {
+            return;
+        }
+
+        active = !limits.isPonder();
+    }
+
+    /**
+     * Starts timing a search that was pondering, from now on.
+     */
+    public void ponderhit() {
+        startTime = System.currentTimeMillis();
+        active = optimumTime > 0;
+    }
+
+    /**
+     * Stops timing the search, so it is never timed out.
+     */
+    public void reset() {
+        active = false;
+        optimumTime = maximumTime = 0;
+    }
+
+    /**
+     * Gets the time since the search started, or since the ponder hit.
+     * @return the elapsed time, in milliseconds
+     */
+    public long elapsed() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * Checks whether there is time to start another iteration.
+     * @return false if half of the optimum time has already been spent
+     */
+    public boolean canStartIteration() {
+        return !active || elapsed() < optimumTime / 2;
+    }
+
+    /**
+     * Checks whether the search must stop now.
+     * @return true once the maximum time has been spent
+     */
+    public boolean isOutOfTime() {
+        return active && elapsed() >= maximumTime;
+    }
+
+    public long getOptimumTime() {
+        return optimumTime;
+    }
+
+    public long getMaximumTime() {
+        return maximumTime;
+    }
+}
@@ -0,0 +1,220 @@
+package com.jtulayan.chess.engine;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size hash table of search results, keyed by {@link com.jtulayan.chess.Board#hash()}.
+ *
+ * Entries are kept in two primitive arrays, one of keys and one of packed data,
+ * so the table holds no objects and costs 16 bytes per entry. Entries are grouped
+ * into buckets of two, and the {@link ReplacementPolicy} decides which entry of a
+ * full bucket a new result overwrites.
+ *
+ * The table is shared by every search thread without locking. Each key is stored
+ * XORed with its data, so an entry torn by two threads writing it at once no longer
+ * matches its key and is simply treated as missing.
+ *
+ * Data is packed as follows, from the least significant bit:
+ * <pre>
+ *  bits  0-19  best move, see {@link com.jtulayan.chess.Move}
+ *  bits 20-35  score, as a signed 16 bit value
+ *  bits 36-43  depth
+ *  bits 44-45  bound type
+ *  bits 46-51  age of the search that stored it
+ * </pre>
+ *
+ * @see <a href="https://www.chessprogramming.org/Transposition_Table">Transposition Table</a>
+ */
+public class TranspositionTable {
+    public static final int
+        BOUND_NONE = 0,
+        BOUND_EXACT = 1,
+        BOUND_LOWER = 2,
+        BOUND_UPPER = 3;
+
+    private static final int ENTRY_BYTES = 16;
+    private static final int BUCKET_SIZE = 2;
+
+    /**
+     * Schemes for picking which entry of a bucket a new result replaces.
+     */
+    public enum ReplacementPolicy {
+        /**
+         * Only the first entry of a bucket is used, and every store overwrites it.
+         */
+        ALWAYS_REPLACE,
+        /**
+         * Only the first entry of a bucket is used, and a store only overwrites
+         * results that are shallower or from an older search.
+         */
+        DEPTH_PREFERRED,
+        /**
+         * The first entry of a bucket is depth-preferred, and results
+         * that can't go there overwrite the second entry instead.
+         */
+        TWO_TIER
+    }
+
+    private long[] keys;
+    private long[] data;
+    private int mask;
+    private int age = 0;
+    private final ReplacementPolicy policy;
+
+    /**
+     * Creates a two-tier table of the given size.
+     * @param megabytes the size of the table, rounded down to a power of two entries
+     */
+    public TranspositionTable(int megabytes) {
+        this(megabytes, ReplacementPolicy.TWO_TIER);
+    }
+
+    /**
+     * Creates a table of the given size.
+     * @param megabytes the size of the table, rounded down to a power of two entries
+     * @param policy    the scheme for replacing entries
+     */
+    public TranspositionTable(int megabytes, ReplacementPolicy policy) {
+        this.policy = policy;
+        resize(megabytes);
+    }
+
+    /**
+     * Resizes the table, discarding every entry.
+     * @param megabytes the size of the table, rounded down to a power of two entries
+     */
+    public void resize(int megabytes) {
+        long entries = Long.highestOneBit(Math.max(1L, (long)megabytes * 1024 * 1024 / ENTRY_BYTES));
+        entries = Math.max(BUCKET_SIZE, Math.min(entries, 1L << 30));
+
+        keys = new long[(int)entries];
+        data = new long[(int)entries];
+        mask = (int)(entries / BUCKET_SIZE - 1);
+    }
+
+    /**
+     * Discards every entry.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(data, 0L);
+        age = 0;
+    }
+
+    /**
+     * Marks the start of a new search, so older entries are replaced first.
+     */
+    public void newSearch() {
+        age = (age + 1) & 0x3F;
+    }
+
+    /**
+     * Looks up the entry for a position.
+     * @param key the hash of the position
+     * @return the packed entry data, or 0 if the position isn't stored
+     */
+    public long probe(long key) {
+        int bucket = index(key);
+
+        for (int i = bucket; i < bucket + BUCKET_SIZE; i++) {
+            long entry = data[i];
+
+            if ((keys[i] ^ entry) == key && entry != 0L)
+                return entry;
+        }
+
+        return 0L;
+    }
+
+    /**
+     * Stores a search result for a position.
+     * @param key   the hash of the position
+     * @param move  the best move found, or {@link com.jtulayan.chess.Move#NONE}
+     * @param score the score, already adjusted for mate distance from this position
+     * @param depth the depth searched
+     * @param bound the bound type of the score
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int bucket = index(key);
+        int slot = bucket;
+
+        if (policy != ReplacementPolicy.ALWAYS_REPLACE) {
+            long old = data[bucket];
+            boolean replaceable = (keys[bucket] ^ old) == key || old == 0L
+                || getAge(old) != age || depth >= getDepth(old);
+
+            if (!replaceable) {
+                if (policy == ReplacementPolicy.DEPTH_PREFERRED)
+                    return;
+                slot = bucket + 1;
+            }
+        }
+
+        // Keep the old best move if this result didn't find one
+        long old = data[slot];
+        if (move == 0 && (keys[slot] ^ old) == key)
+            move = getMove(old);
+
+        long entry = pack(move, score, depth, bound, age);
+        keys[slot] = key ^ entry;
+        data[slot] = entry;
+    }
+
+    private int index(long key) {
+        return ((int)(key ^ (key >>> 32)) & mask) * BUCKET_SIZE;
+    }
+
+    /**
+     * Gets the number of entries per thousand that were stored by the current search.
+     * @return the fill rate, from 0 to 1000
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, data.length);
+        int used = 0;
+
+        for (int i = 0; i < sample; i++) {
+            if (data[i] != 0L && getAge(data[i]) == age)
+                used++;
+        }
+
+        return used * 1000 / sample;
+    }
+
+    public int getSize() {
+        return keys.length;
+    }
+
+    public ReplacementPolicy getPolicy() {
+        return policy;
+    }
+
+    // region Entry packing
+    static long pack(int move, int score, int depth, int bound, int age) {
+        return (move & 0xFFFFFL)
+            | ((score & 0xFFFFL) << 20)
+            | ((long)(depth & 0xFF) << 36)
+            | ((long)bound << 44)
+            | ((long)age << 46);
+    }
+
+    public static int getMove(long entry) {
+        return (int)(entry & 0xFFFFF);
+    }
+
+    public static int getScore(long entry) {
+        return (short)(entry >>> 20);
+    }
+
+    public static int getDepth(long entry) {
+        return (int)(entry >>> 36) & 0xFF;
+    }
+
+    public static int getBound(long entry) {
+        return (int)(entry >>> 44) & 0x3;
+    }
+
+    static int getAge(long entry) {
+        return (int)(entry >>> 46) & 0x3F;
+    }
+    // endregion
+}
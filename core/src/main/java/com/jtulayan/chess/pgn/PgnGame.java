@@ -0,0 +1,131 @@
+package com.jtulayan.chess.pgn;
+
+import com.jtulayan.chess.Fen;
+import com.jtulayan.chess.Move;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One game read from a PGN archive.
+ *
+ * A game starts out as its tags and raw movetext, as split off the archive by
+ * {@link PgnReader}. Once {@link PgnParser} has resolved it, it also holds the
+ * main line as moves, and the raw movetext is let go. Games that fail to
+ * resolve keep the moves up to the failure and the reason for it.
+ */
+public class PgnGame {
+    public static final String START_FEN = Fen.START_POSITION;
+
+    private static final int[] NO_MOVES = new int[0];
+
+    private final Map<String, String> tags = new LinkedHashMap<String, String>();
+    private final long offset;
+    private String movetext;
+    private int[] moves = NO_MOVES;
+    private String result;
+    private String error;
+
+    /**
+     * Creates an unresolved game.
+     * @param offset the byte offset of the game in its archive
+     */
+    PgnGame(long offset) {
+        this.offset = offset;
+    }
+
+    void putTag(String name, String value) {
+        tags.put(name, value);
+    }
+
+    void setMovetext(String movetext) {
+        this.movetext = movetext;
+    }
+
+    String getMovetext() {
+        return movetext;
+    }
+
+    /**
+     * Stores the resolved main line, letting go of the raw movetext.
+     */
+    void resolve(int[] moves, int count, String result, String error) {
+        this.moves = count == 0 ? NO_MOVES : Arrays.copyOf(moves, count);
+        this.result = result;
+        this.error = error;
+        movetext = null;
+    }
+
+    /**
+     * Gets the value of a tag.
+     * @param name the tag name, such as "White" or "ECO"
+     * @return the value, or null if the game doesn't have the tag
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public Map<String, String> getTags() {
+        return Collections.unmodifiableMap(tags);
+    }
+
+    /**
+     * Gets the position the game starts from.
+     * @return the FEN tag when the game is set up from a position, otherwise the standard start
+     */
+    public String getStartFen() {
+        String fen = tags.get("FEN");
+        return fen == null ? START_FEN : fen;
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * Gets a move of the main line.
+     * @param ply the index of the move, from 0
+     * @return the move, encoded as per {@link Move}
+     */
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+
+    public int[] getMoves() {
+        return moves.clone();
+    }
+
+    /**
+     * Gets the result of the game.
+     * @return "1-0", "0-1", "1/2-1/2" or "*", from the movetext, or else the "Result" tag
+     */
+    public String getResult() {
+        if (result != null)
+            return result;
+
+        String tag = tags.get("Result");
+        return tag == null ? "*" : tag;
+    }
+
+    /**
+     * Gets the byte offset of the game in its archive, for reporting errors.
+     * @return the offset of the game's first byte
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets why the game couldn't be fully resolved.
+     * @return the reason, or null if every move was resolved
+     */
+    public String getError() {
+        return error;
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
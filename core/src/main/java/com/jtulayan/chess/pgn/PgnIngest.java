@@ -0,0 +1,215 @@
+package com.jtulayan.chess.pgn;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reads a PGN archive on the calling thread and resolves its games on a pool of workers.
+ *
+ * The reader only splits the archive into games, which is cheap, and hands them
+ * out in batches through a bounded queue. Resolving SAN against the board is the
+ * expensive part, and is spread over the workers, each with its own
+ * {@link PgnParser}. When the workers fall behind, the queue fills up and the
+ * reader waits, so no more than a few batches of games are ever held at once,
+ * however large the archive.
+ */
+public class PgnIngest {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private static final PgnGame[] END = new PgnGame[0];
+
+    private final int threads;
+    private final int batchSize;
+    private final int queuedBatches;
+
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLong moves = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile RuntimeException failure;
+
+    /**
+     * Creates an ingest with the default batch size, and two batches queued per worker.
+     * @param threads the number of worker threads
+     */
+    public PgnIngest(int threads) {
+        this(threads, DEFAULT_BATCH_SIZE, threads * 2);
+    }
+
+    /**
+     * Creates an ingest.
+     * @param threads       the number of worker threads
+     * @param batchSize     the number of games handed to a worker at a time
+     * @param queuedBatches the number of batches that may wait for a worker
+     */
+    public PgnIngest(int threads, int batchSize, int queuedBatches) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Thread count must be positive! Was " + threads);
+        if (batchSize < 1)
+            throw new IllegalArgumentException("Batch size must be positive! Was " + batchSize);
+        if (queuedBatches < 1)
+            throw new IllegalArgumentException("Queued batch count must be positive! Was " + queuedBatches);
+
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.queuedBatches = queuedBatches;
+    }
+
+    /**
+     * Reads every game of an archive, returning once every game has been handed to the listener.
+     * @param file     the PGN archive
+     * @param listener the listener to hand each resolved game to, from the worker threads
+     * @return the number of games read
+     * @throws IOException if the archive could not be read
+     */
+    public long run(File file, PgnListener listener) throws IOException {
+        games.set(0);
+        moves.set(0);
+        errors.set(0);
+        failure = null;
+
+        BlockingQueue<PgnGame[]> queue = new ArrayBlockingQueue<PgnGame[]>(queuedBatches);
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(new Worker(queue, listener), "pgn-worker-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        try (PgnReader reader = new PgnReader(file)) {
+            PgnGame[] batch = new PgnGame[batchSize];
+            int size = 0;
+
+            for (PgnGame game = reader.next(); game != null && failure == null; game = reader.next()) {
+                batch[size++] = game;
+
+                if (size == batchSize) {
+                    put(queue, batch);
+                    batch = new PgnGame[batchSize];
+                    size = 0;
+                }
+            }
+
+            if (size > 0)
+                put(queue, Arrays.copyOf(batch, size));
+        } finally {
+            for (int i = 0; i < threads; i++)
+                put(queue, END);
+            for (Thread worker : workers)
+                join(worker);
+        }
+
+        if (failure != null)
+            throw failure;
+
+        return games.get();
+    }
+
+    private static void put(BlockingQueue<PgnGame[]> queue, PgnGame[] batch) {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("PGN ingest was interrupted!", e);
+        }
+    }
+
+    private static void join(Thread worker) {
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Resolves batches until the end marker, or only drains them once a listener has failed.
+     */
+    private class Worker implements Runnable {
+        private final BlockingQueue<PgnGame[]> queue;
+        private final PgnListener listener;
+        private final PgnParser parser = new PgnParser();
+
+        Worker(BlockingQueue<PgnGame[]> queue, PgnListener listener) {
+            this.queue = queue;
+            this.listener = listener;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (PgnGame[] batch = queue.take(); batch != END; batch = queue.take()) {
+                    if (failure != null)
+                        continue;
+
+                    long batchMoves = 0;
+                    long batchErrors = 0;
+                    try {
+                        for (PgnGame game : batch) {
+                            if (!parser.resolve(game))
+                                batchErrors++;
+                            batchMoves += game.getMoveCount();
+                            listener.gameRead(game);
+                        }
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    }
+
+                    games.addAndGet(batch.length);
+                    moves.addAndGet(batchMoves);
+                    errors.addAndGet(batchErrors);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public long getGames() {
+        return games.get();
+    }
+
+    public long getMoves() {
+        return moves.get();
+    }
+
+    /**
+     * Gets the number of games that failed to resolve in the last run.
+     * @return the number of invalid games
+     */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Usage: "PgnIngest archive.pgn [threads]"
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: PgnIngest archive.pgn [threads]");
+            System.exit(1);
+        }
+
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        PgnIngest ingest = new PgnIngest(threads);
+        final AtomicLong reported = new AtomicLong();
+
+        long start = System.nanoTime();
+        ingest.run(new File(args[0]), new PgnListener() {
+            @Override
+            public void gameRead(PgnGame game) {
+                if (!game.isValid() && reported.incrementAndGet() <= 10)
+                    System.out.println("Game at byte " + game.getOffset() + ": " + game.getError());
+            }
+        });
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println("Games:      " + ingest.getGames());
+        System.out.println("Moves:      " + ingest.getMoves());
+        System.out.println("Errors:     " + ingest.getErrors());
+        System.out.println("Games/sec:  " + (elapsed == 0 ? 0 : ingest.getGames() * 1000000000L / elapsed));
+    }
+}
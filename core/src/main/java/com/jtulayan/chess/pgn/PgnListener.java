@@ -0,0 +1,16 @@
+package com.jtulayan.chess.pgn;
+
+/**
+ * Receives the games of an archive from a running {@link PgnIngest}.
+ *
+ * Games are handed over on the worker threads that resolved them, several at
+ * once and in no particular order, so listeners have to be thread-safe.
+ */
+public interface PgnListener {
+
+    /**
+     * Called once for each game, after its moves have been resolved.
+     * @param game the game, which may have failed to resolve, see {@link PgnGame#isValid()}
+     */
+    void gameRead(PgnGame game);
+}
@@ -0,0 +1,141 @@
+package com.jtulayan.chess.pgn;
+
+import com.jtulayan.chess.AlgebraicNotation;
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Fen;
+import com.jtulayan.chess.MoveList;
+
+import java.util.Arrays;
+
+/**
+ * Resolves the movetext of {@link PgnGame}s into moves, against a live {@link Board}.
+ *
+ * The movetext is walked once with a cursor. Move numbers, comments, NAGs,
+ * variations and annotation marks are skipped, and each SAN token of the main
+ * line is matched against the legal moves of the position it's played in.
+ *
+ * Each parser keeps its own board and move buffers, so a parser must only be
+ * used by one thread at a time. Give each worker thread its own.
+ */
+public class PgnParser {
+    private final Board board = new Board();
+    private final MoveList scratch = new MoveList();
+    private int[] moves = new int[512];
+
+    /**
+     * Resolves a game's main line, replacing its raw movetext with moves.
+     * A game that fails to resolve keeps its moves up to the failure, and the reason.
+     * @param game the game to resolve
+     * @return true if every move was resolved
+     */
+    public boolean resolve(PgnGame game) {
+        String text = game.getMovetext();
+        if (text == null)
+            return game.isValid();
+
+        int count = 0;
+        String result = null;
+        String error = null;
+
+        try {
+            Fen.read(board, game.getStartFen());
+        } catch (RuntimeException e) {
+            game.resolve(moves, 0, null, "Invalid FEN! Was " + game.getStartFen());
+            return false;
+        }
+
+        int length = text.length();
+        int depth = 0;
+        int i = 0;
+
+        while (i < length) {
+            char c = text.charAt(i);
+
+            if (c <= ' ') {
+                i++;
+            } else if (c == '{') {
+                int close = text.indexOf('}', i);
+                i = close < 0 ? length : close + 1;
+            } else if (c == ';') {
+                int newline = text.indexOf('\n', i);
+                i = newline < 0 ? length : newline + 1;
+            } else if (c == '(') {
+                depth++;
+                i++;
+            } else if (c == ')') {
+                depth = Math.max(0, depth - 1);
+                i++;
+            } else {
+                int end = i;
+                while (end < length && !isDelimiter(text.charAt(end)))
+                    end++;
+
+                // Variations, NAGs and lone annotations aren't part of the main line
+                if (depth > 0 || c == '$' || c == '!' || c == '?') {
+                    i = end;
+                    continue;
+                }
+
+                // A move number may be glued onto its move, as in "12.e4"
+                int start = i;
+                if (Character.isDigit(c) && !isResult(text, start, end)) {
+                    while (start < end && Character.isDigit(text.charAt(start)))
+                        start++;
+                    if (start < end && text.charAt(start) != '.')
+                        start = i;
+                    while (start < end && text.charAt(start) == '.')
+                        start++;
+                }
+                i = end;
+
+                if (start == end)
+                    continue;
+                if (isResult(text, start, end)) {
+                    result = text.substring(start, end);
+                    break;
+                }
+
+                try {
+                    int move = AlgebraicNotation.parseMove(board, text, start, end, scratch);
+                    board.makeMove(move);
+
+                    if (count == moves.length)
+                        moves = Arrays.copyOf(moves, count * 2);
+                    moves[count++] = move;
+                } catch (IllegalArgumentException e) {
+                    error = "Move " + (count / 2 + 1) + ": " + e.getMessage();
+                    break;
+                }
+            }
+        }
+
+        game.resolve(moves, count, result, error);
+        return error == null;
+    }
+
+    private static boolean isDelimiter(char c) {
+        return c <= ' ' || c == '{' || c == '}' || c == '(' || c == ')' || c == ';';
+    }
+
+    private static boolean isResult(CharSequence text, int start, int end) {
+        switch (end - start) {
+            case 1:
+                return text.charAt(start) == '*';
+            case 3:
+                return regionMatches(text, start, "1-0") || regionMatches(text, start, "0-1");
+            case 7:
+                return regionMatches(text, start, "1/2-1/2");
+            default:
+                return false;
+        }
+    }
+
+    private static boolean regionMatches(CharSequence text, int start, String expected) {
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(start + i) != expected.charAt(i))
+                return false;
+        }
+
+        return true;
+    }
+}
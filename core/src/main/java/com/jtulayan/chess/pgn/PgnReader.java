@@ -0,0 +1,236 @@
+package com.jtulayan.chess.pgn;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Splits a PGN archive into games, streaming it through a fixed size buffer.
+ *
+ * The archive is read through a channel a buffer at a time and scanned a line
+ * at a time, so memory use depends on the longest game, not on the archive.
+ * Tag pairs are parsed as they are read, and the movetext is kept raw for a
+ * {@link PgnParser} to resolve, which can be done on another thread.
+ * A tag line after some movetext starts the next game.
+ *
+ * Tag values are read as UTF-8. Movetext is read a byte per character, as only
+ * the ASCII in it matters; anything else can only be in a comment.
+ *
+ * @see <a href="http://www.saremo.com/pgn/pgn_spec.htm">PGN standard</a>
+ */
+public class PgnReader implements Closeable {
+    public static final int BUFFER_BYTES = 1 << 20;
+    public static final int MAX_MOVETEXT = 1 << 20;
+
+    private final ReadableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+    private final StringBuilder movetext = new StringBuilder();
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private long lineOffset;
+    private long position;
+    private boolean isEnd;
+
+    private boolean inComment;
+    private boolean isTooLong;
+    private PgnGame pending;
+
+    /**
+     * Opens an archive for reading.
+     * @param file the PGN file
+     * @throws IOException if the file could not be opened
+     */
+    public PgnReader(File file) throws IOException {
+        this(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+    }
+
+    /**
+     * Reads an archive from a channel, which is closed along with the reader.
+     * @param channel the channel to read PGN from
+     */
+    public PgnReader(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /**
+     * Reads the next game.
+     * @return the game, with its tags and raw movetext, or null at the end of the archive
+     * @throws IOException if the archive could not be read
+     */
+    public PgnGame next() throws IOException {
+        PgnGame game = pending;
+        pending = null;
+        movetext.setLength(0);
+        inComment = false;
+        isTooLong = false;
+
+        while (readLine()) {
+            int i = 0;
+            while (i < lineLength && line[i] <= ' ' && line[i] >= 0)
+                i++;
+
+            if (!inComment) {
+                if (i == lineLength || line[i] == '%')
+                    continue;
+
+                if (line[i] == '[') {
+                    if (game != null && movetext.length() > 0) {
+                        pending = new PgnGame(lineOffset);
+                        readTag(pending, i);
+                        return finish(game);
+                    }
+
+                    if (game == null)
+                        game = new PgnGame(lineOffset);
+                    readTag(game, i);
+                    continue;
+                }
+            }
+
+            if (game == null)
+                game = new PgnGame(lineOffset);
+            appendMovetext(i);
+        }
+
+        return game == null ? null : finish(game);
+    }
+
+    private PgnGame finish(PgnGame game) {
+        if (isTooLong)
+            game.resolve(null, 0, null, "Movetext too long! Was over " + MAX_MOVETEXT + " characters");
+        else
+            game.setMovetext(movetext.toString());
+
+        return game;
+    }
+
+    /**
+     * Parses a tag pair, [Name "Value"], where the value may escape quotes and backslashes.
+     */
+    private void readTag(PgnGame game, int i) {
+        int nameStart = i + 1;
+        int nameEnd = nameStart;
+        while (nameEnd < lineLength && line[nameEnd] > ' ' && line[nameEnd] != '"' && line[nameEnd] != ']')
+            nameEnd++;
+
+        int quote = nameEnd;
+        while (quote < lineLength && line[quote] != '"')
+            quote++;
+        if (nameEnd == nameStart || quote == lineLength)
+            return;
+
+        // The value is unescaped in place, as the line is done with afterwards
+        int length = 0;
+        for (int j = quote + 1; j < lineLength && line[j] != '"'; j++) {
+            if (line[j] == '\\' && j + 1 < lineLength)
+                j++;
+            line[quote + 1 + length++] = line[j];
+        }
+
+        game.putTag(new String(line, nameStart, nameEnd - nameStart, StandardCharsets.US_ASCII),
+            new String(line, quote + 1, length, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Adds a line to the movetext, keeping track of comments left open at its end.
+     */
+    private void appendMovetext(int i) {
+        if (movetext.length() + lineLength - i >= MAX_MOVETEXT) {
+            isTooLong = true;
+            movetext.setLength(0);
+        }
+
+        for (; i < lineLength; i++) {
+            char c = (char)(line[i] & 0xFF);
+
+            if (inComment) {
+                if (c == '}')
+                    inComment = false;
+            } else if (c == '{') {
+                inComment = true;
+            } else if (c == ';') {
+                // Comments to the end of the line stay on their own line
+                if (!isTooLong)
+                    movetext.append(new String(line, i, lineLength - i, StandardCharsets.ISO_8859_1));
+                break;
+            }
+
+            if (!isTooLong)
+                movetext.append(c);
+        }
+
+        if (!isTooLong)
+            movetext.append('\n');
+    }
+
+    /**
+     * Reads the next line into the line buffer, without its line ending.
+     * @return false once the archive has no more lines
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        lineOffset = position;
+
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                if (isEnd || !fill())
+                    return lineLength > 0 || position > lineOffset;
+            }
+
+            byte[] data = buffer.array();
+            int start = buffer.position();
+            int limit = buffer.limit();
+            int end = start;
+            while (end < limit && data[end] != '\n')
+                end++;
+
+            appendLine(data, start, end);
+            boolean isLineEnd = end < limit;
+            buffer.position(isLineEnd ? end + 1 : end);
+            position += (isLineEnd ? end + 1 : end) - start;
+
+            if (isLineEnd) {
+                if (lineLength > 0 && line[lineLength - 1] == '\r')
+                    lineLength--;
+                return true;
+            }
+        }
+    }
+
+    private void appendLine(byte[] data, int start, int end) {
+        int count = Math.min(end - start, MAX_MOVETEXT - lineLength);
+        if (count <= 0)
+            return;
+
+        if (lineLength + count > line.length)
+            line = Arrays.copyOf(line, Math.max(line.length * 2, lineLength + count));
+
+        System.arraycopy(data, start, line, lineLength, count);
+        lineLength += count;
+    }
+
+    private boolean fill() throws IOException {
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+
+        if (read < 0)
+            isEnd = true;
+        return read > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,80 @@
+package com.jtulayan.chess.player;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Move;
+import com.jtulayan.chess.engine.Search;
+import com.jtulayan.chess.engine.SearchLimits;
+import com.jtulayan.chess.engine.TranspositionTable;
+
+/**
+ * Player that picks its moves by searching the board.
+ *
+ * @see Search
+ */
+public class ComputerPlayer implements Player {
+    private final Search search;
+    private SearchLimits limits;
+
+    /**
+     * Creates a player searching the given board, with no depth or node limit
+     * beyond the search's own.
+     * @param board the board the game is played on
+     */
+    public ComputerPlayer(Board board) {
+        this(board, Search.MAX_PLY - 1, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a player searching the given board, with a 16 MB transposition table.
+     * @param board    the board the game is played on
+     * @param maxDepth the deepest iteration to search, in plies
+     * @param maxNodes the number of nodes after which to stop searching
+     */
+    public ComputerPlayer(Board board, int maxDepth, long maxNodes) {
+        this(board, maxDepth, maxNodes, new TranspositionTable(16));
+    }
+
+    /**
+     * Creates a player searching the given board.
+     * @param board              the board the game is played on
+     * @param maxDepth           the deepest iteration to search, in plies
+     * @param maxNodes           the number of nodes after which to stop searching
+     * @param transpositionTable the table to keep search results in
+     */
+    public ComputerPlayer(Board board, int maxDepth, long maxNodes, TranspositionTable transpositionTable) {
+        search = new Search(board, transpositionTable);
+        search.setMaxDepth(maxDepth);
+        search.setMaxNodes(maxNodes);
+    }
+
+    /**
+     * Searches for the best move on the board, leaving the board as it was.
+     * @return the move, notated as "f1r1f2r2dFF" so it can be passed to {@link Board#makeMove(String)},
+     *         or null if there are no legal moves
+     */
+    @Override
+    public String createMove() {
+        int move = limits == null ? search.search() : search.search(limits);
+
+        return move == Move.NONE ? null : Move.toString(move);
+    }
+
+    /**
+     * Sets the clock or time limits for the following moves.
+     * @param limits the limits to search with, or null to use only the depth and node limits
+     */
+    public void setLimits(SearchLimits limits) {
+        this.limits = limits;
+    }
+
+    /**
+     * Stops {@link #createMove()} from another thread, so it returns the best move found so far.
+     */
+    public void stop() {
+        search.stop();
+    }
+
+    public Search getSearch() {
+        return search;
+    }
+}
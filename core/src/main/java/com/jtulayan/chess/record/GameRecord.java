@@ -0,0 +1,255 @@
+package com.jtulayan.chess.record;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Move;
+import com.jtulayan.chess.MoveGenerators;
+import com.jtulayan.chess.MoveList;
+import com.jtulayan.chess.Piece;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A game in a compact binary form, for storing game history.
+ *
+ * A record is a header with its tags, the start position, then one move per ply:
+ * either a byte holding the move's index in the legal move list of its position
+ * ({@link #MODE_INDEX}), or 16 bits of from tile, to tile and promotion
+ * ({@link #MODE_PACKED}). Indices are the smaller of the two but depend on the
+ * order moves are generated in, so the format version has to change with it.
+ * Every so many plies the position is stored as a checkpoint, so seeking to a
+ * ply only has to replay from the checkpoint before it.
+ *
+ * Positions are packed by {@link PositionCodec} into at most 30 bytes. Records
+ * start with their length, so any number of them can be stored back to back and
+ * read in place, straight from a mapped file. Each record is encoded by a {@link GameRecordWriter}.
+ *
+ * Records are read-only and can be shared between threads, while each
+ * {@link Cursor} replays on one board and belongs to one thread.
+ */
+public class GameRecord {
+    public static final int
+        MODE_INDEX = 0,
+        MODE_PACKED = 1;
+
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 32;
+
+    static final int MAGIC = ('G' << 24) | ('C' << 16) | ('G' << 8) | 'R';
+    static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 18;
+
+    private final ByteBuffer data;
+    private final int mode;
+    private final int checkpointInterval;
+    private final int plyCount;
+    private final Map<String, String> tags;
+    private final int startOffset;
+    private final int checkpointsOffset;
+    private final int movesOffset;
+
+    /**
+     * Reads a record in place, from the buffer's position onwards.
+     * The buffer's position is moved past the record, onto the next one.
+     * @param buffer the buffer holding the record, which must not be changed while the record is used
+     */
+    public GameRecord(ByteBuffer buffer) {
+        int length = buffer.remaining() < 8 ? -1 : buffer.getInt(buffer.position() + 4);
+        if (length < HEADER_BYTES || length > buffer.remaining())
+            throw new IllegalArgumentException("Invalid game record length! Was " + length);
+
+        ByteBuffer record = buffer.slice();
+        record.limit(length);
+        buffer.position(buffer.position() + length);
+        data = record;
+
+        if (data.getInt(0) != MAGIC)
+            throw new IllegalArgumentException("Invalid game record header! Found " + Integer.toHexString(data.getInt(0)));
+        if (data.get(8) != VERSION)
+            throw new IllegalArgumentException("Unsupported game record version! Was " + data.get(8));
+
+        mode = data.get(9);
+        checkpointInterval = data.getShort(10) & 0xFFFF;
+        plyCount = data.getInt(12);
+        if (mode != MODE_INDEX && mode != MODE_PACKED)
+            throw new IllegalArgumentException("Invalid move encoding! Was " + mode);
+
+        int tagCount = data.getShort(16) & 0xFFFF;
+        Map<String, String> tags = new LinkedHashMap<String, String>(tagCount * 2);
+        int i = HEADER_BYTES;
+        for (int t = 0; t < tagCount; t++) {
+            String name = readString(i);
+            i += 2 + (data.getShort(i) & 0xFFFF);
+
+            tags.put(name, readString(i));
+            i += 2 + (data.getShort(i) & 0xFFFF);
+        }
+        this.tags = Collections.unmodifiableMap(tags);
+
+        startOffset = i;
+        checkpointsOffset = startOffset + PositionCodec.length(data, startOffset);
+        movesOffset = checkpointsOffset + getCheckpointCount() * 4;
+    }
+
+    /**
+     * Reads a record from a whole array.
+     * @param record the record's bytes
+     */
+    public GameRecord(byte[] record) {
+        this(ByteBuffer.wrap(record));
+    }
+
+    /**
+     * Reads a string as written by {@link java.io.DataOutputStream#writeUTF(String)}.
+     */
+    private String readString(int offset) {
+        byte[] bytes = new byte[2 + (data.getShort(offset) & 0xFFFF)];
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = data.get(offset + i);
+
+        try {
+            return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid game record tag! Found " + e.getMessage(), e);
+        }
+    }
+
+    private int getCheckpointCount() {
+        return plyCount / checkpointInterval;
+    }
+
+    /**
+     * Gets the value of a tag.
+     * @param name the tag name
+     * @return the value, or null if the record doesn't have the tag
+     */
+    public String getTag(String name) {
+        return tags.get(name);
+    }
+
+    public Map<String, String> getTags() {
+        return tags;
+    }
+
+    public int getPlyCount() {
+        return plyCount;
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    /**
+     * Gets the size of the record.
+     * @return the number of bytes the record takes up
+     */
+    public int getLength() {
+        return data.limit();
+    }
+
+    /**
+     * Starts replaying the game on a board, which is set up with the start position.
+     * @param board the board to replay on
+     * @return a cursor at ply 0
+     */
+    public Cursor cursor(Board board) {
+        return new Cursor(board);
+    }
+
+    /**
+     * Replays a record on a board, forwards one move at a time or by seeking to any ply.
+     */
+    public class Cursor {
+        private final Board board;
+        private final MoveList scratch = new MoveList();
+        private int ply;
+        private boolean isSetUp;
+
+        Cursor(Board board) {
+            this.board = board;
+            seek(0);
+        }
+
+        /**
+         * Makes the next move on the board.
+         * @return the move made, encoded as per {@link Move}, or {@link Move#NONE} at the end of the game
+         */
+        public int next() {
+            if (ply >= plyCount)
+                return Move.NONE;
+
+            int move = decode();
+            board.makeMove(move);
+            ply++;
+
+            return move;
+        }
+
+        /**
+         * Sets the board up at a ply, from the nearest checkpoint at or before it.
+         * The board's undo stack only reaches back to that checkpoint.
+         * @param target the number of moves to have been made, from 0 to the ply count
+         */
+        public void seek(int target) {
+            if (target < 0 || target > plyCount)
+                throw new IllegalArgumentException("Ply is outside range! Was " + target);
+
+            int checkpoint = target / checkpointInterval;
+
+            // Replaying forwards from here is no slower than from the checkpoint
+            if (!isSetUp || target < ply || ply < checkpoint * checkpointInterval) {
+                if (checkpoint == 0)
+                    PositionCodec.read(data, startOffset, board);
+                else
+                    PositionCodec.read(data, data.getInt(checkpointsOffset + (checkpoint - 1) * 4), board);
+                ply = checkpoint * checkpointInterval;
+                isSetUp = true;
+            }
+
+            while (ply < target)
+                next();
+        }
+
+        public int getPly() {
+            return ply;
+        }
+
+        public Board getBoard() {
+            return board;
+        }
+
+        private int decode() {
+            scratch.clear();
+
+            if (mode == MODE_INDEX) {
+                board.listLegalMoves(scratch);
+                int index = data.get(movesOffset + ply) & 0xFF;
+                if (index >= scratch.size())
+                    throw new IllegalStateException("Corrupt game record! Move index " + index + " at ply " + ply);
+
+                return scratch.get(index);
+            }
+
+            int packed = data.getShort(movesOffset + ply * 2) & 0xFFFF;
+            int from = packed & 63;
+            int to = (packed >>> 6) & 63;
+            int promotion = (packed >>> 12) & 7;
+
+            MoveGenerators.listLegalMoves(board, scratch, MoveGenerators.GEN_ALL, 1L << from);
+            for (int i = 0; i < scratch.size(); i++) {
+                int move = scratch.get(i);
+
+                if (Move.getTo(move) == to && (Move.isPromotion(move)
+                        ? Move.getPromotionType(move) == Piece.KNIGHT + promotion - 1 : promotion == 0))
+                    return move;
+            }
+
+            throw new IllegalStateException("Corrupt game record! Move " + packed + " at ply " + ply);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.jtulayan.chess.record;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Move;
+import com.jtulayan.chess.MoveGenerators;
+import com.jtulayan.chess.MoveList;
+import com.jtulayan.chess.Piece;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodes a game as a {@link GameRecord}, one move at a time.
+ *
+ * The writer plays each move on its own copy of the start position, both to
+ * check it is legal and to find its index in the legal move list, and keeps a
+ * checkpoint of the position every so many plies.
+ */
+public class GameRecordWriter {
+    private final Board board;
+    private final int mode;
+    private final int checkpointInterval;
+    private final MoveList scratch = new MoveList();
+    private final Map<String, String> tags = new LinkedHashMap<String, String>();
+
+    private final byte[] start;
+    private final ByteArrayOutputStream moves = new ByteArrayOutputStream();
+    private final List<byte[]> checkpoints = new ArrayList<byte[]>();
+    private int plyCount;
+
+    /**
+     * Creates a writer with moves stored as indices, and the default checkpoint interval.
+     * @param start the position the game starts from, which is left untouched
+     */
+    public GameRecordWriter(Board start) {
+        this(start, GameRecord.MODE_INDEX, GameRecord.DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Creates a writer.
+     * @param start              the position the game starts from, which is left untouched
+     * @param mode               {@link GameRecord#MODE_INDEX} or {@link GameRecord#MODE_PACKED}
+     * @param checkpointInterval the number of plies between stored positions, 1 to 65535
+     */
+    public GameRecordWriter(Board start, int mode, int checkpointInterval) {
+        if (mode != GameRecord.MODE_INDEX && mode != GameRecord.MODE_PACKED)
+            throw new IllegalArgumentException("Invalid move encoding! Was " + mode);
+        if (checkpointInterval < 1 || checkpointInterval > 0xFFFF)
+            throw new IllegalArgumentException("Checkpoint interval is outside range! Was " + checkpointInterval);
+
+        this.board = new Board(start);
+        this.mode = mode;
+        this.checkpointInterval = checkpointInterval;
+        this.start = encodePosition();
+    }
+
+    /**
+     * Adds a tag, such as "White" or "Result", replacing any tag of the same name.
+     * @param name  the tag name
+     * @param value the tag value
+     */
+    public void putTag(String name, String value) {
+        tags.put(name, value);
+    }
+
+    /**
+     * Adds the next move of the game.
+     * @param move the move, encoded as per {@link Move}, which must be legal in the current position
+     */
+    public void add(int move) {
+        scratch.clear();
+
+        if (mode == GameRecord.MODE_INDEX) {
+            board.listLegalMoves(scratch);
+            int index = indexOf(move);
+
+            moves.write(index);
+        } else {
+            MoveGenerators.listLegalMoves(board, scratch, MoveGenerators.GEN_ALL, 1L << Move.getFrom(move));
+            indexOf(move);
+
+            int promotion = Move.isPromotion(move) ? Move.getPromotionType(move) - Piece.KNIGHT + 1 : 0;
+            int packed = Move.getFrom(move) | (Move.getTo(move) << 6) | (promotion << 12);
+            moves.write(packed >>> 8);
+            moves.write(packed);
+        }
+
+        board.makeMove(move);
+        plyCount++;
+
+        if (plyCount % checkpointInterval == 0)
+            checkpoints.add(encodePosition());
+    }
+
+    private int indexOf(int move) {
+        for (int i = 0; i < scratch.size(); i++) {
+            if (scratch.get(i) == move)
+                return i;
+        }
+
+        throw new IllegalArgumentException("Illegal move! Was " + Move.toCoordinates(move));
+    }
+
+    public int getPlyCount() {
+        return plyCount;
+    }
+
+    /**
+     * Encodes the game so far.
+     * @return the record's bytes, as read by {@link GameRecord#GameRecord(ByteBuffer)}
+     */
+    public byte[] toByteArray() {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + moves.size() + checkpoints.size() * PositionCodec.MAX_BYTES);
+            DataOutputStream out = new DataOutputStream(bytes);
+
+            out.writeInt(GameRecord.MAGIC);
+            out.writeInt(0);
+            out.writeByte(GameRecord.VERSION);
+            out.writeByte(mode);
+            out.writeShort(checkpointInterval);
+            out.writeInt(plyCount);
+
+            out.writeShort(tags.size());
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                out.writeUTF(tag.getKey());
+                out.writeUTF(tag.getValue());
+            }
+
+            out.write(start);
+
+            // Checkpoint offsets come before the moves, so a reader can seek without scanning
+            int offset = out.size() + checkpoints.size() * 4 + moves.size();
+            for (byte[] checkpoint : checkpoints) {
+                out.writeInt(offset);
+                offset += checkpoint.length;
+            }
+
+            moves.writeTo(out);
+            for (byte[] checkpoint : checkpoints)
+                out.write(checkpoint);
+            out.flush();
+
+            byte[] record = bytes.toByteArray();
+            ByteBuffer.wrap(record).putInt(4, record.length);
+
+            return record;
+        } catch (IOException e) {
+            // Nothing here does real I/O
+            throw new IllegalStateException("Game record could not be encoded!", e);
+        }
+    }
+
+    private byte[] encodePosition() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(PositionCodec.MAX_BYTES);
+        try {
+            PositionCodec.write(board, new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new IllegalStateException("Position could not be encoded!", e);
+        }
+
+        return bytes.toByteArray();
+    }
+}
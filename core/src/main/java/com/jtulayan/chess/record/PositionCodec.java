@@ -0,0 +1,93 @@
+package com.jtulayan.chess.record;
+
+import com.jtulayan.chess.Board;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Packs a position into at most {@value #MAX_BYTES} bytes.
+ *
+ * A position is the occupied tiles as a bitboard, the piece code of each occupied
+ * tile as a nibble, in tile order, then the side to move with the castling rights,
+ * the en passant tile, the halfmove clock and the fullmove number.
+ */
+final class PositionCodec {
+    static final int MAX_BYTES = 8 + 16 + 6;
+
+    /**
+     * Writes the board's position.
+     * @param b   the board to write
+     * @param out the stream to write to
+     */
+    static void write(Board b, DataOutputStream out) throws IOException {
+        long occupied = b.getOccupied();
+        out.writeLong(occupied);
+
+        int pending = -1;
+        for (long pieces = occupied; pieces != 0L; pieces &= pieces - 1) {
+            int piece = b.pieceAt(Long.numberOfTrailingZeros(pieces));
+
+            if (pending < 0) {
+                pending = piece << 4;
+            } else {
+                out.writeByte(pending | piece);
+                pending = -1;
+            }
+        }
+        if (pending >= 0)
+            out.writeByte(pending);
+
+        out.writeByte((b.isWhiteTurn() ? 0x80 : 0) | b.getCastles());
+        out.writeByte(b.getEnPassant() & 0xFF);
+        out.writeShort(b.getHalfmoveClock());
+        out.writeShort(b.getFullmoveNumber());
+    }
+
+    /**
+     * Gets the size of a position without reading it.
+     * @param data   the buffer holding the position
+     * @param offset the index the position starts at
+     * @return the number of bytes the position takes up
+     */
+    static int length(ByteBuffer data, int offset) {
+        return 8 + (Long.bitCount(data.getLong(offset)) + 1) / 2 + 6;
+    }
+
+    /**
+     * Sets up the board with a position, clearing its undo stack.
+     * @param data   the buffer holding the position
+     * @param offset the index the position starts at
+     * @param b      the board to set up
+     * @return the index just past the position
+     */
+    static int read(ByteBuffer data, int offset, Board b) {
+        long occupied = data.getLong(offset);
+        int i = offset + 8;
+
+        b.clearBoard();
+        boolean isHigh = true;
+        for (long pieces = occupied; pieces != 0L; pieces &= pieces - 1) {
+            int nibbles = data.get(i);
+            b.setPiece(Long.numberOfTrailingZeros(pieces), isHigh ? (nibbles >>> 4) & 0xF : nibbles & 0xF);
+
+            if (!isHigh)
+                i++;
+            isHigh = !isHigh;
+        }
+        if (!isHigh)
+            i++;
+
+        int state = data.get(i) & 0xFF;
+        int enPassant = data.get(i + 1) & 0xFF;
+        b.setState((state & 0x80) != 0, state & 0xF, enPassant == 0xFF ? -1 : enPassant,
+            data.getShort(i + 2) & 0xFFFF, data.getShort(i + 4) & 0xFFFF);
+
+        return i + 6;
+    }
+
+    private PositionCodec() {
+        // Never be able to construct this class, this is just a utility class.
+    }
+}
@@ -0,0 +1,75 @@
+package com.jtulayan.chess.tournament;
+
+/**
+ * Rules for ending games early, before they're decided on the board.
+ *
+ * A side resigns once its own search has scored it as losing by at least the
+ * resign score for that many of its moves in a row. A game is drawn once both
+ * searches have scored it within the draw score for that many plies in a row,
+ * after the given ply. Any game still going at the ply limit is drawn.
+ * Scores only come from players that search, see {@link com.jtulayan.chess.player.ComputerPlayer}.
+ *
+ * A count of 0 turns a rule off.
+ */
+public class Adjudication {
+    private int resignScore = 1000;
+    private int resignMoves = 4;
+    private int drawScore = 10;
+    private int drawPlies = 16;
+    private int drawMinPly = 80;
+    private int maxPlies = 400;
+
+    /**
+     * Sets when a side resigns.
+     * @param score the score a side must be losing by, in centipawns
+     * @param moves the number of its moves in a row it must have been losing for
+     */
+    public void setResign(int score, int moves) {
+        this.resignScore = score;
+        this.resignMoves = moves;
+    }
+
+    /**
+     * Sets when a game is drawn.
+     * @param score   the score both sides must be within, in centipawns
+     * @param plies   the number of plies in a row the score must have stayed within it
+     * @param minPly  the first ply the game may be drawn at
+     */
+    public void setDraw(int score, int plies, int minPly) {
+        this.drawScore = score;
+        this.drawPlies = plies;
+        this.drawMinPly = minPly;
+    }
+
+    /**
+     * Sets the ply after which a game is drawn.
+     * @param maxPlies the ply limit, or 0 for none
+     */
+    public void setMaxPlies(int maxPlies) {
+        this.maxPlies = maxPlies;
+    }
+
+    public int getResignScore() {
+        return resignScore;
+    }
+
+    public int getResignMoves() {
+        return resignMoves;
+    }
+
+    public int getDrawScore() {
+        return drawScore;
+    }
+
+    public int getDrawPlies() {
+        return drawPlies;
+    }
+
+    public int getDrawMinPly() {
+        return drawMinPly;
+    }
+
+    public int getMaxPlies() {
+        return maxPlies;
+    }
+}
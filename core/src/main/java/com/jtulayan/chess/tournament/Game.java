@@ -0,0 +1,234 @@
+package com.jtulayan.chess.tournament;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Move;
+import com.jtulayan.chess.MoveList;
+import com.jtulayan.chess.Piece;
+import com.jtulayan.chess.player.ComputerPlayer;
+import com.jtulayan.chess.player.Player;
+
+import java.util.Arrays;
+
+/**
+ * One game between two players on one board, refereed to the end.
+ *
+ * The game ends on mate, stalemate, the fifty move rule, threefold repetition,
+ * insufficient material, a flag fall, an illegal move, or by {@link Adjudication}.
+ * Players that search are given the clock as {@link com.jtulayan.chess.engine.SearchLimits},
+ * and every player's thinking time is measured against its clock.
+ */
+public class Game {
+    public static final int
+        BLACK_WINS = -1,
+        DRAW = 0,
+        WHITE_WINS = 1;
+
+    private final Board board;
+    private final Player white;
+    private final Player black;
+    private final TimeControl timeControl;
+    private final Adjudication adjudication;
+    private final MoveList legal = new MoveList();
+
+    private int[] moves = new int[256];
+    private long[] hashes = new long[256];
+    private int plyCount;
+    private int result;
+    private String termination;
+
+    /**
+     * Creates a game from the board's current position.
+     * @param board        the board to play on, which both players must have been created for
+     * @param white        the player of the white pieces
+     * @param black        the player of the black pieces
+     * @param timeControl  the time each side may think
+     * @param adjudication the rules for ending the game early
+     */
+    public Game(Board board, Player white, Player black, TimeControl timeControl, Adjudication adjudication) {
+        this.board = board;
+        this.white = white;
+        this.black = black;
+        this.timeControl = timeControl;
+        this.adjudication = adjudication;
+    }
+
+    /**
+     * Plays the game to its end.
+     * @return {@link #WHITE_WINS}, {@link #DRAW} or {@link #BLACK_WINS}
+     */
+    public int play() {
+        long whiteClock = timeControl.getBase();
+        long blackClock = timeControl.getBase();
+        int whiteLosing = 0, blackLosing = 0, drawish = 0;
+
+        plyCount = 0;
+        hashes[0] = board.hash();
+
+        while (true) {
+            boolean isWhite = board.isWhiteTurn();
+
+            legal.clear();
+            board.listLegalMoves(legal);
+            if (legal.size() == 0) {
+                if (board.isInCheck(isWhite))
+                    return end(isWhite ? BLACK_WINS : WHITE_WINS, "checkmate");
+                return end(DRAW, "stalemate");
+            }
+            if (board.getHalfmoveClock() >= 100)
+                return end(DRAW, "fifty move rule");
+            if (isThreefold())
+                return end(DRAW, "threefold repetition");
+            if (isInsufficientMaterial())
+                return end(DRAW, "insufficient material");
+            if (adjudication.getMaxPlies() > 0 && plyCount >= adjudication.getMaxPlies())
+                return end(DRAW, "adjudication: ply limit");
+
+            Player player = isWhite ? white : black;
+            if (player instanceof ComputerPlayer)
+                ((ComputerPlayer)player).setLimits(timeControl.toLimits(whiteClock, blackClock));
+
+            long start = System.nanoTime();
+            String text = player.createMove();
+            long elapsed = (System.nanoTime() - start) / 1000000;
+
+            if (timeControl.isClock()) {
+                long clock = (isWhite ? whiteClock : blackClock) - elapsed;
+                if (clock < 0)
+                    return end(isWhite ? BLACK_WINS : WHITE_WINS, "time forfeit");
+
+                clock += timeControl.getIncrement();
+                if (isWhite)
+                    whiteClock = clock;
+                else
+                    blackClock = clock;
+            }
+
+            int move = parse(text);
+            if (move == Move.NONE)
+                return end(isWhite ? BLACK_WINS : WHITE_WINS, "illegal move " + text);
+
+            // Scores are from the side to move, so a side is losing when its own score is low
+            if (player instanceof ComputerPlayer) {
+                int score = ((ComputerPlayer)player).getSearch().getBestScore();
+
+                if (isWhite)
+                    whiteLosing = score <= -adjudication.getResignScore() ? whiteLosing + 1 : 0;
+                else
+                    blackLosing = score <= -adjudication.getResignScore() ? blackLosing + 1 : 0;
+                drawish = Math.abs(score) <= adjudication.getDrawScore() ? drawish + 1 : 0;
+            }
+
+            play(move);
+
+            int resignMoves = adjudication.getResignMoves();
+            if (resignMoves > 0 && whiteLosing >= resignMoves)
+                return end(BLACK_WINS, "adjudication: white resigns");
+            if (resignMoves > 0 && blackLosing >= resignMoves)
+                return end(WHITE_WINS, "adjudication: black resigns");
+            if (adjudication.getDrawPlies() > 0 && drawish >= adjudication.getDrawPlies()
+                    && plyCount >= adjudication.getDrawMinPly())
+                return end(DRAW, "adjudication: draw");
+        }
+    }
+
+    /**
+     * Finds a player's move among the legal moves.
+     */
+    private int parse(String text) {
+        if (text == null)
+            return Move.NONE;
+
+        try {
+            int move = Move.parse(text);
+            return legal.contains(move) ? move : Move.NONE;
+        } catch (IllegalArgumentException e) {
+            return Move.NONE;
+        }
+    }
+
+    private void play(int move) {
+        board.makeMove(move);
+
+        if (plyCount + 1 == moves.length) {
+            moves = Arrays.copyOf(moves, moves.length * 2);
+            hashes = Arrays.copyOf(hashes, hashes.length * 2);
+        }
+        moves[plyCount++] = move;
+        hashes[plyCount] = board.hash();
+    }
+
+    private int end(int result, String termination) {
+        this.result = result;
+        this.termination = termination;
+
+        return result;
+    }
+
+    /**
+     * Checks if the position has been seen twice before, since the last capture or pawn move.
+     */
+    private boolean isThreefold() {
+        int oldest = Math.max(0, plyCount - board.getHalfmoveClock());
+        int seen = 0;
+
+        for (int i = plyCount - 4; i >= oldest; i -= 2) {
+            if (hashes[i] == hashes[plyCount] && ++seen == 2)
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Checks if neither side can mate: no pawns, rooks or queens, and at most one minor piece.
+     */
+    private boolean isInsufficientMaterial() {
+        long heavy = 0L;
+        long minors = 0L;
+
+        for (int color = Piece.WHITE; color <= Piece.BLACK; color += Piece.BLACK) {
+            heavy |= board.getBitboard(Piece.PAWN | color) | board.getBitboard(Piece.ROOK | color)
+                | board.getBitboard(Piece.QUEEN | color);
+            minors |= board.getBitboard(Piece.KNIGHT | color) | board.getBitboard(Piece.BISHOP | color);
+        }
+
+        return heavy == 0L && Long.bitCount(minors) <= 1;
+    }
+
+    /**
+     * Gets the result once the game is over.
+     * @return {@link #WHITE_WINS}, {@link #DRAW} or {@link #BLACK_WINS}
+     */
+    public int getResult() {
+        return result;
+    }
+
+    /**
+     * Gets the result in PGN.
+     * @return "1-0", "1/2-1/2" or "0-1"
+     */
+    public String getResultText() {
+        return result == WHITE_WINS ? "1-0" : result == BLACK_WINS ? "0-1" : "1/2-1/2";
+    }
+
+    /**
+     * Gets why the game ended.
+     * @return the reason, such as "checkmate" or "adjudication: draw"
+     */
+    public String getTermination() {
+        return termination;
+    }
+
+    public int getPlyCount() {
+        return plyCount;
+    }
+
+    /**
+     * Gets a move of the game.
+     * @param ply the index of the move, from 0
+     * @return the move, encoded as per {@link Move}
+     */
+    public int getMove(int ply) {
+        return moves[ply];
+    }
+}
@@ -0,0 +1,20 @@
+package com.jtulayan.chess.tournament;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.player.Player;
+
+/**
+ * Creates the players of a {@link Tournament}, a fresh one for each game.
+ *
+ * Games are played on several threads at once, so each player must only keep
+ * state of its own, and the factory itself must be safe to call from any thread.
+ */
+public interface PlayerFactory {
+
+    /**
+     * Creates a player for one game.
+     * @param board the board the game is played on, which the player should read its position from
+     * @return the player
+     */
+    Player create(Board board);
+}
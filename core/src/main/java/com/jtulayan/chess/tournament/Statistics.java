@@ -0,0 +1,189 @@
+package com.jtulayan.chess.tournament;
+
+/**
+ * Wins, draws and losses of one player against another, with the Elo
+ * difference they imply and a sequential probability ratio test (SPRT).
+ *
+ * The Elo error margin is the 95% confidence interval of the score, by the
+ * normal approximation. The SPRT uses the generalized SPRT approximation of
+ * the log-likelihood ratio, which takes the variance from the draws played.
+ *
+ * Results are added from the tournament's worker threads once per game, so
+ * every method is synchronized; each game takes far longer than the lock.
+ *
+ * @see <a href="https://www.chessprogramming.org/Match_Statistics">Match Statistics</a>
+ * @see <a href="https://www.chessprogramming.org/Sequential_Probability_Ratio_Test">Sequential Probability Ratio Test</a>
+ */
+public class Statistics {
+    public static final int
+        SPRT_CONTINUE = 0,
+        SPRT_ACCEPT_H0 = -1,
+        SPRT_ACCEPT_H1 = 1;
+
+    private static final double Z_95 = 1.959964;
+
+    private int wins;
+    private int draws;
+    private int losses;
+
+    /**
+     * Adds the result of a game.
+     * @param score 1 for a win, 0 for a draw, -1 for a loss
+     */
+    public synchronized void add(int score) {
+        if (score > 0)
+            wins++;
+        else if (score < 0)
+            losses++;
+        else
+            draws++;
+    }
+
+    public synchronized int getWins() {
+        return wins;
+    }
+
+    public synchronized int getDraws() {
+        return draws;
+    }
+
+    public synchronized int getLosses() {
+        return losses;
+    }
+
+    public synchronized int getGames() {
+        return wins + draws + losses;
+    }
+
+    /**
+     * Gets the average score per game.
+     * @return the score, from 0 to 1
+     */
+    public synchronized double getScore() {
+        int games = getGames();
+        return games == 0 ? 0.5 : (wins + draws * 0.5) / games;
+    }
+
+    /**
+     * Gets the Elo difference implied by the score.
+     * @return the difference, infinite when every game was won or lost
+     */
+    public synchronized double getElo() {
+        return elo(getScore());
+    }
+
+    /**
+     * Gets the error margin of the Elo difference.
+     * @return half the width of the 95% confidence interval, in Elo
+     */
+    public synchronized double getEloMargin() {
+        int games = getGames();
+        if (games == 0)
+            return Double.POSITIVE_INFINITY;
+
+        double deviation = Math.sqrt(getVariance() / games);
+        double score = getScore();
+
+        double high = score + Z_95 * deviation;
+        double low = score - Z_95 * deviation;
+
+        // Past a score of 0 or 1 the margin is unbounded
+        if (high >= 1 || low <= 0)
+            return Double.POSITIVE_INFINITY;
+
+        return (elo(high) - elo(low)) / 2;
+    }
+
+    /**
+     * Gets the likelihood of superiority, the chance the player is the stronger one.
+     * Draws say nothing about which player is stronger, so only decisive games count.
+     * @return the likelihood, from 0 to 1
+     */
+    public synchronized double getLikelihoodOfSuperiority() {
+        if (wins + losses == 0)
+            return 0.5;
+
+        return 0.5 * (1 + erf((wins - losses) / Math.sqrt(2.0 * (wins + losses))));
+    }
+
+    /**
+     * Gets the log-likelihood ratio of the player being elo1 stronger rather than elo0.
+     * @param elo0 the Elo difference of the null hypothesis
+     * @param elo1 the Elo difference of the alternative hypothesis
+     * @return the ratio
+     */
+    public synchronized double getLogLikelihoodRatio(double elo0, double elo1) {
+        int games = getGames();
+        double variance = getVariance();
+        if (games == 0 || variance == 0)
+            return 0;
+
+        double score0 = expectedScore(elo0);
+        double score1 = expectedScore(elo1);
+
+        return games * (score1 - score0) * (2 * getScore() - score0 - score1) / (2 * variance);
+    }
+
+    /**
+     * Runs the SPRT.
+     * @param elo0  the Elo difference of the null hypothesis
+     * @param elo1  the Elo difference of the alternative hypothesis
+     * @param alpha the chance of accepting H1 when H0 is true
+     * @param beta  the chance of accepting H0 when H1 is true
+     * @return {@link #SPRT_ACCEPT_H1}, {@link #SPRT_ACCEPT_H0} or {@link #SPRT_CONTINUE}
+     */
+    public synchronized int sprt(double elo0, double elo1, double alpha, double beta) {
+        double llr = getLogLikelihoodRatio(elo0, elo1);
+
+        if (llr >= getUpperBound(alpha, beta))
+            return SPRT_ACCEPT_H1;
+        if (llr <= getLowerBound(alpha, beta))
+            return SPRT_ACCEPT_H0;
+        return SPRT_CONTINUE;
+    }
+
+    public static double getLowerBound(double alpha, double beta) {
+        return Math.log(beta / (1 - alpha));
+    }
+
+    public static double getUpperBound(double alpha, double beta) {
+        return Math.log((1 - beta) / alpha);
+    }
+
+    /**
+     * Gets the variance of a single game's score.
+     */
+    private double getVariance() {
+        int games = getGames();
+        if (games == 0)
+            return 0;
+
+        double score = getScore();
+        return (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score) + losses * score * score) / games;
+    }
+
+    private static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    private static double expectedScore(double elo) {
+        return 1 / (1 + Math.pow(10, -elo / 400));
+    }
+
+    /**
+     * Approximates the error function, to within 1.5e-7 (Abramowitz and Stegun 7.1.26).
+     */
+    private static double erf(double x) {
+        double t = 1 / (1 + 0.3275911 * Math.abs(x));
+        double y = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))))
+            * Math.exp(-x * x);
+
+        return x < 0 ? -y : y;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("+%d -%d =%d, score %.1f%%, Elo %.1f +/- %.1f, LOS %.1f%%",
+            wins, losses, draws, getScore() * 100, getElo(), getEloMargin(), getLikelihoodOfSuperiority() * 100);
+    }
+}
@@ -0,0 +1,131 @@
+package com.jtulayan.chess.tournament;
+
+import com.jtulayan.chess.engine.SearchLimits;
+
+/**
+ * How long each side may think in a game: a clock with an increment,
+ * or a fixed number of nodes or plies per move.
+ *
+ * Node and depth limits play the same games however busy the machine is,
+ * so they suit runs with more games in flight than cores. Clocks measure wall
+ * time, so each game should have a core to itself.
+ */
+public class TimeControl {
+    private final long base;
+    private final long increment;
+    private final long nodes;
+    private final int depth;
+
+    private TimeControl(long base, long increment, long nodes, int depth) {
+        this.base = base;
+        this.increment = increment;
+        this.nodes = nodes;
+        this.depth = depth;
+    }
+
+    /**
+     * Creates a clock time control.
+     * @param base      the time each side starts with, in milliseconds
+     * @param increment the time added after each move, in milliseconds
+     * @return the time control
+     */
+    public static TimeControl clock(long base, long increment) {
+        if (base <= 0 || increment < 0)
+            throw new IllegalArgumentException("Invalid clock! Was " + base + "+" + increment);
+
+        return new TimeControl(base, increment, -1, -1);
+    }
+
+    /**
+     * Creates a time control of a fixed number of nodes per move.
+     * @param nodes the node limit of each search
+     * @return the time control
+     */
+    public static TimeControl nodes(long nodes) {
+        if (nodes <= 0)
+            throw new IllegalArgumentException("Node limit must be positive! Was " + nodes);
+
+        return new TimeControl(-1, 0, nodes, -1);
+    }
+
+    /**
+     * Creates a time control of a fixed depth per move.
+     * @param depth the depth limit of each search, in plies
+     * @return the time control
+     */
+    public static TimeControl depth(int depth) {
+        if (depth <= 0)
+            throw new IllegalArgumentException("Depth limit must be positive! Was " + depth);
+
+        return new TimeControl(-1, 0, -1, depth);
+    }
+
+    /**
+     * Reads a time control, as "10+0.1" for a clock in seconds, "nodes=20000" or "depth=6".
+     * @param text the time control
+     * @return the time control
+     */
+    public static TimeControl parse(String text) {
+        try {
+            if (text.startsWith("nodes="))
+                return nodes(Long.parseLong(text.substring(6)));
+            if (text.startsWith("depth="))
+                return depth(Integer.parseInt(text.substring(6)));
+
+            int plus = text.indexOf('+');
+            double base = Double.parseDouble(plus < 0 ? text : text.substring(0, plus));
+            double increment = plus < 0 ? 0 : Double.parseDouble(text.substring(plus + 1));
+
+            return clock(Math.round(base * 1000), Math.round(increment * 1000));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid time control! Was " + text, e);
+        }
+    }
+
+    public boolean isClock() {
+        return base > 0;
+    }
+
+    /**
+     * Gets the time each side starts with.
+     * @return the time in milliseconds, or -1 if there is no clock
+     */
+    public long getBase() {
+        return base;
+    }
+
+    public long getIncrement() {
+        return increment;
+    }
+
+    /**
+     * Creates the limits for the next search.
+     * @param whiteClock the time left for white, in milliseconds
+     * @param blackClock the time left for black, in milliseconds
+     * @return the limits
+     */
+    public SearchLimits toLimits(long whiteClock, long blackClock) {
+        SearchLimits limits = new SearchLimits();
+
+        if (isClock()) {
+            limits.setTime(whiteClock, blackClock);
+            limits.setIncrement(increment, increment);
+        }
+        if (nodes > 0)
+            limits.setNodes(nodes);
+        if (depth > 0)
+            limits.setDepth(depth);
+
+        return limits;
+    }
+
+    @Override
+    public String toString() {
+        if (nodes > 0)
+            return "nodes=" + nodes;
+        if (depth > 0)
+            return "depth=" + depth;
+
+        return base / 1000.0 + "+" + increment / 1000.0;
+    }
+}
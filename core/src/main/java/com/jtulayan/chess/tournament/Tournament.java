@@ -0,0 +1,411 @@
+package com.jtulayan.chess.tournament;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Fen;
+import com.jtulayan.chess.engine.Bitbases;
+import com.jtulayan.chess.engine.TranspositionTable;
+import com.jtulayan.chess.player.ComputerPlayer;
+import com.jtulayan.chess.player.Player;
+import com.jtulayan.chess.record.GameRecordWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays a match of many games between two players, on a pool of threads.
+ *
+ * Every game gets its own {@link Board} and its own pair of players from their
+ * factories, so games share nothing while they are played. Each opening is played
+ * twice, once with each player as white, and openings are cycled through in order.
+ * Results go into a {@link Statistics} as each game ends, and each game can be
+ * kept as a {@link com.jtulayan.chess.record.GameRecord}, written once the match is over.
+ *
+ * With an SPRT set, the match stops as soon as the test accepts either hypothesis,
+ * and the games not yet started are skipped.
+ *
+ * A game that throws is reported and counted as an error rather than a result,
+ * and the match carries on. Openings are checked when they are set, before any game starts.
+ */
+public class Tournament {
+    private final PlayerFactory first;
+    private final PlayerFactory second;
+    private String firstName = "first";
+    private String secondName = "second";
+
+    private TimeControl timeControl = TimeControl.clock(10000, 100);
+    private Adjudication adjudication = new Adjudication();
+    private List<String> openings = Collections.singletonList(Fen.START_POSITION);
+    private int games = 100;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private PrintStream out = System.out;
+
+    private boolean isSprt;
+    private double elo0, elo1, alpha, beta;
+
+    private final Statistics statistics = new Statistics();
+    private final AtomicInteger finished = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+    private volatile boolean stopped;
+    private byte[][] records;
+
+    /**
+     * Creates a match between two players.
+     * @param first  the factory of the player the statistics are for
+     * @param second the factory of its opponent
+     */
+    public Tournament(PlayerFactory first, PlayerFactory second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public void setNames(String firstName, String secondName) {
+        this.firstName = firstName;
+        this.secondName = secondName;
+    }
+
+    public void setTimeControl(TimeControl timeControl) {
+        this.timeControl = timeControl;
+    }
+
+    public void setAdjudication(Adjudication adjudication) {
+        this.adjudication = adjudication;
+    }
+
+    /**
+     * Sets the positions to start games from.
+     * @param openings the positions in FEN, each played twice with colors swapped
+     * @throws IllegalArgumentException if the suite is empty or any position isn't valid FEN
+     */
+    public void setOpenings(List<String> openings) {
+        if (openings.isEmpty())
+            throw new IllegalArgumentException("Opening suite is empty!");
+
+        Board board = new Board();
+        for (String opening : openings)
+            Fen.read(board, opening);
+
+        this.openings = new ArrayList<String>(openings);
+    }
+
+    /**
+     * Sets the number of games to play.
+     * @param games the game count, rounded up to an even number so both players get each opening as white
+     */
+    public void setGames(int games) {
+        if (games < 1)
+            throw new IllegalArgumentException("Game count must be positive! Was " + games);
+
+        this.games = games + (games & 1);
+    }
+
+    /**
+     * Sets the number of games played at once.
+     * @param threads the thread count, which should be at most the core count for clock time controls
+     */
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Thread count must be positive! Was " + threads);
+
+        this.threads = threads;
+    }
+
+    /**
+     * Sets the stream to report each game and the progress to.
+     * @param out the stream, or null to report nothing
+     */
+    public void setOutput(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Stops the match early once an SPRT concludes.
+     * @param elo0  the Elo difference of the null hypothesis
+     * @param elo1  the Elo difference of the alternative hypothesis
+     * @param alpha the chance of accepting H1 when H0 is true
+     * @param beta  the chance of accepting H0 when H1 is true
+     */
+    public void setSprt(double elo0, double elo1, double alpha, double beta) {
+        this.isSprt = true;
+        this.elo0 = elo0;
+        this.elo1 = elo1;
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    /**
+     * Plays the match, returning once every game has ended or the SPRT has concluded.
+     * @param keepRecords if each game should be kept, see {@link #writeRecords(OutputStream)}
+     * @return the results, from the first player's point of view
+     */
+    public Statistics run(boolean keepRecords) {
+        records = keepRecords ? new byte[games][] : null;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < games; i++) {
+            final int index = i;
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (stopped)
+                        return;
+
+                    // Left to the pool, a failed game would just go missing from the results
+                    try {
+                        playGame(index);
+                    } catch (RuntimeException e) {
+                        errors.incrementAndGet();
+                        if (out != null) {
+                            out.println("Game " + (index + 1) + " failed: " + e);
+                            e.printStackTrace(out);
+                        }
+                    }
+                }
+            });
+        }
+
+        pool.shutdown();
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                // Games are all queued, so this only waits for them to finish
+            }
+        } catch (InterruptedException e) {
+            stopped = true;
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        return statistics;
+    }
+
+    private void playGame(int index) {
+        boolean isFirstWhite = (index & 1) == 0;
+        String opening = openings.get((index / 2) % openings.size());
+
+        Board board = new Board();
+        Fen.read(board, opening);
+        Board start = new Board(board);
+
+        Player firstPlayer = first.create(board);
+        Player secondPlayer = second.create(board);
+        Game game = isFirstWhite
+            ? new Game(board, firstPlayer, secondPlayer, timeControl, adjudication)
+            : new Game(board, secondPlayer, firstPlayer, timeControl, adjudication);
+
+        int result = game.play();
+        statistics.add(isFirstWhite ? result : -result);
+
+        if (records != null)
+            records[index] = record(game, start, isFirstWhite, index);
+
+        int count = finished.incrementAndGet();
+        if (out != null) {
+            out.println("Game " + (index + 1) + " (" + (isFirstWhite ? firstName + " vs " + secondName : secondName + " vs " + firstName)
+                + "): " + game.getResultText() + " {" + game.getTermination() + "}");
+            out.println("Score of " + firstName + " vs " + secondName + " after " + count + " games: " + statistics);
+        }
+
+        if (isSprt && statistics.sprt(elo0, elo1, alpha, beta) != Statistics.SPRT_CONTINUE)
+            stopped = true;
+    }
+
+    private byte[] record(Game game, Board start, boolean isFirstWhite, int index) {
+        GameRecordWriter writer = new GameRecordWriter(start);
+        writer.putTag("Round", Integer.toString(index + 1));
+        writer.putTag("White", isFirstWhite ? firstName : secondName);
+        writer.putTag("Black", isFirstWhite ? secondName : firstName);
+        writer.putTag("TimeControl", timeControl.toString());
+        writer.putTag("Result", game.getResultText());
+        writer.putTag("Termination", game.getTermination());
+
+        for (int ply = 0; ply < game.getPlyCount(); ply++)
+            writer.add(game.getMove(ply));
+
+        return writer.toByteArray();
+    }
+
+    /**
+     * Writes the games kept by the last run, back to back in the order they were scheduled.
+     * @param stream the stream to write to
+     * @throws IOException if the records could not be written
+     */
+    public void writeRecords(OutputStream stream) throws IOException {
+        if (records == null)
+            return;
+
+        for (byte[] record : records) {
+            if (record != null)
+                stream.write(record);
+        }
+    }
+
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Gets the number of games that failed with an exception, which are left out of the statistics.
+     * @return the error count
+     */
+    public int getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * Reads an opening suite, one FEN or EPD position per line.
+     * Blank lines and lines starting with '#' are skipped, as are any EPD operations.
+     * @param file the suite
+     * @return the positions in FEN
+     * @throws IOException if the suite could not be read, or has a position that isn't valid
+     */
+    public static List<String> loadOpenings(File file) throws IOException {
+        List<String> openings = new ArrayList<String>();
+        Board board = new Board();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#"))
+                    continue;
+
+                String[] fields = line.split("\\s+");
+                if (fields.length < 4)
+                    throw new IOException("Invalid opening! Was " + line);
+
+                // Clocks are only kept when both are there, otherwise EPD operations follow
+                boolean hasClocks = fields.length >= 6 && fields[4].matches("\\d+") && fields[5].matches("\\d+");
+                StringBuilder fen = new StringBuilder(fields[0]);
+                for (int i = 1; i < (hasClocks ? 6 : 4); i++)
+                    fen.append(' ').append(fields[i]);
+
+                try {
+                    Fen.read(board, fen);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException("Invalid opening! Was " + line, e);
+                }
+
+                openings.add(fen.toString());
+            }
+        }
+
+        return openings;
+    }
+
+    /**
+     * Usage: "Tournament [key=value]...", with the keys
+     * games, threads, tc ("10+0.1", "nodes=N" or "depth=N"), openings (a FEN/EPD file),
+     * sprt ("elo0,elo1"), records (a file to write the games to),
+     * and per player, as first.* and second.*: hash (MB) and bitbases (a directory).
+     */
+    public static void main(String[] args) throws IOException {
+        Options options = new Options(args);
+
+        Tournament tournament = new Tournament(options.player("first"), options.player("second"));
+        tournament.setGames(Integer.parseInt(options.get("games", "100")));
+        tournament.setThreads(Integer.parseInt(options.get("threads", Integer.toString(Runtime.getRuntime().availableProcessors()))));
+        tournament.setTimeControl(TimeControl.parse(options.get("tc", "10+0.1")));
+
+        String openings = options.get("openings", null);
+        if (openings != null)
+            tournament.setOpenings(loadOpenings(new File(openings)));
+
+        String sprt = options.get("sprt", null);
+        if (sprt != null) {
+            String[] bounds = sprt.split(",");
+            tournament.setSprt(Double.parseDouble(bounds[0]), Double.parseDouble(bounds[1]), 0.05, 0.05);
+        }
+
+        String records = options.get("records", null);
+        long start = System.currentTimeMillis();
+        Statistics statistics = tournament.run(records != null);
+        long elapsed = System.currentTimeMillis() - start;
+
+        if (records != null) {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(records))) {
+                tournament.writeRecords(out);
+            }
+        }
+
+        System.out.println();
+        System.out.println("Games:      " + statistics.getGames() + " in " + elapsed / 1000 + " s");
+        System.out.println("Result:     " + statistics);
+        if (tournament.getErrors() > 0)
+            System.out.println("Errors:     " + tournament.getErrors() + " games failed, see above");
+        if (sprt != null) {
+            String[] bounds = sprt.split(",");
+            double elo0 = Double.parseDouble(bounds[0]);
+            double elo1 = Double.parseDouble(bounds[1]);
+            int verdict = statistics.sprt(elo0, elo1, 0.05, 0.05);
+
+            System.out.println(String.format("SPRT:       llr %.2f (%.2f, %.2f), %s", statistics.getLogLikelihoodRatio(elo0, elo1),
+                Statistics.getLowerBound(0.05, 0.05), Statistics.getUpperBound(0.05, 0.05),
+                verdict == Statistics.SPRT_ACCEPT_H1 ? "H1 accepted" : verdict == Statistics.SPRT_ACCEPT_H0 ? "H0 accepted" : "inconclusive"));
+        }
+    }
+
+    /**
+     * The "key=value" arguments of {@link #main(String[])}.
+     */
+    private static class Options {
+        private final String[] args;
+
+        Options(String[] args) {
+            for (String arg : args) {
+                if (arg.indexOf('=') < 0)
+                    throw new IllegalArgumentException("Options must be key=value! Was " + arg);
+            }
+            this.args = args;
+        }
+
+        String get(String key, String defaultValue) {
+            for (String arg : args) {
+                if (arg.startsWith(key + "="))
+                    return arg.substring(key.length() + 1);
+            }
+
+            return defaultValue;
+        }
+
+        /**
+         * Creates the factory for one side. Each worker thread keeps a table per side
+         * and clears it between games, rather than allocating one for every game.
+         */
+        PlayerFactory player(String side) throws IOException {
+            final int hash = Integer.parseInt(get(side + ".hash", "16"));
+            String path = get(side + ".bitbases", null);
+            final Bitbases bitbases = path == null ? null : new Bitbases(new File(path));
+            final ThreadLocal<TranspositionTable> tables = new ThreadLocal<TranspositionTable>() {
+                @Override
+                protected TranspositionTable initialValue() {
+                    return new TranspositionTable(hash);
+                }
+            };
+
+            return new PlayerFactory() {
+                @Override
+                public Player create(Board board) {
+                    TranspositionTable table = tables.get();
+                    table.clear();
+
+                    ComputerPlayer player = new ComputerPlayer(board, Integer.MAX_VALUE, Long.MAX_VALUE, table);
+                    player.getSearch().setBitbases(bitbases);
+                    return player;
+                }
+            };
+        }
+    }
+}
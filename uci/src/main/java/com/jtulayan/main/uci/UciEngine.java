@@ -0,0 +1,500 @@
+package com.jtulayan.main.uci;
+
+import com.jtulayan.chess.Board;
+import com.jtulayan.chess.Fen;
+import com.jtulayan.chess.Move;
+import com.jtulayan.chess.MoveGenerators;
+import com.jtulayan.chess.MoveList;
+import com.jtulayan.chess.Piece;
+import com.jtulayan.chess.engine.Bitbases;
+import com.jtulayan.chess.engine.PolyglotBook;
+import com.jtulayan.chess.engine.Search;
+import com.jtulayan.chess.engine.SearchLimits;
+import com.jtulayan.chess.engine.SearchListener;
+import com.jtulayan.chess.engine.TranspositionTable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Engine speaking the Universal Chess Interface over a pair of streams.
+ *
+ * Commands are read a line at a time and parsed in place, token by token.
+ * Searches run on their own thread, so "stop", "ponderhit" and "isready"
+ * are answered while searching.
+ *
+ * The board is kept between "position" commands. When a command repeats the
+ * last position and only adds moves, as GUIs do every move of a game, just the
+ * new moves are made. Moves that no longer match are taken back first.
+ *
+ * With a Polyglot book set through the "Book File" option, timed searches
+ * play straight from the book for as long as the game stays in it.
+ * Endgame bitbases are loaded from the directory set through "Bitbase Path".
+ *
+ * @see <a href="https://www.shredderchess.com/download/div/uci.zip">UCI protocol</a>
+ */
+public class UciEngine implements Runnable, SearchListener {
+    public static final String NAME = "gdx-chess";
+    public static final String AUTHOR = "jtulayan";
+
+    private static final int
+        DEFAULT_HASH = 16,
+        MAX_HASH = 4096,
+        MAX_THREADS = 256;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+
+    private final Board board = new Board();
+    private final Search search;
+    private final MoveList scratch = new MoveList();
+
+    // The last position command, as the text of its starting position and the moves made since
+    private String base = "";
+    private String[] moveTokens = new String[256];
+    private int[] moves = new int[256];
+    private int moveCount = 0;
+
+    private Thread searchThread;
+    private PolyglotBook book;
+    private Bitbases bitbases;
+    private final Random random = new Random();
+
+    /**
+     * Creates an engine reading commands from and writing responses to the given streams.
+     * @param in  the stream to read commands from
+     * @param out the stream to write responses to
+     */
+    public UciEngine(InputStream in, OutputStream out) {
+        this.in = new BufferedReader(new InputStreamReader(in));
+        this.out = new PrintStream(out, false);
+
+        search = new Search(board, new TranspositionTable(DEFAULT_HASH));
+        search.setListener(this);
+        Fen.read(board, Fen.START_POSITION);
+    }
+
+    /**
+     * Reads and handles commands until "quit" or the end of the input.
+     */
+    @Override
+    public void run() {
+        try {
+            String command;
+            while ((command = in.readLine()) != null) {
+                if (!handle(command))
+                    break;
+            }
+        } catch (IOException e) {
+            // Nothing left to read from, so there's nothing left to do
+        }
+
+        stopSearch();
+        out.flush();
+    }
+
+    /**
+     * Handles a single command.
+     * @param command the line of input
+     * @return false if the engine should quit
+     */
+    public boolean handle(String command) {
+        int start = skipSpaces(command, 0);
+        int end = tokenEnd(command, start);
+
+        if (start == end)
+            return true;
+
+        switch (command.substring(start, end)) {
+            case "uci":
+                send("id name " + NAME);
+                send("id author " + AUTHOR);
+                send("option name Hash type spin default " + DEFAULT_HASH + " min 1 max " + MAX_HASH);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name Move Overhead type spin default "
+                    + search.getTimeManager().getMoveOverhead() + " min 0 max 5000");
+                send("option name Ponder type check default false");
+                send("option name Book File type string default <empty>");
+                send("option name Bitbase Path type string default <empty>");
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "ucinewgame":
+                waitForSearch();
+                search.getTranspositionTable().clear();
+                break;
+            case "setoption":
+                waitForSearch();
+                setOption(command, end);
+                break;
+            case "position":
+                waitForSearch();
+                position(command, end);
+                break;
+            case "go":
+                waitForSearch();
+                go(command, end);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "ponderhit":
+                search.ponderhit();
+                break;
+            case "quit":
+                return false;
+            default:
+                send("info string Unknown command: " + command);
+                break;
+        }
+
+        return true;
+    }
+
+    /**
+     * Handles "setoption name &lt;name&gt; value &lt;value&gt;", where names may contain spaces.
+     */
+    private void setOption(String command, int i) {
+        int nameStart = command.indexOf("name", i);
+        int valueStart = command.indexOf(" value ", i);
+        if (nameStart < 0)
+            return;
+
+        String name = command.substring(nameStart + 4, valueStart < 0 ? command.length() : valueStart).trim();
+        String value = valueStart < 0 ? "" : command.substring(valueStart + 7).trim();
+
+        try {
+            if ("Hash".equalsIgnoreCase(name)) {
+                search.getTranspositionTable().resize(clamp(Integer.parseInt(value), 1, MAX_HASH));
+            } else if ("Threads".equalsIgnoreCase(name)) {
+                search.setThreads(clamp(Integer.parseInt(value), 1, MAX_THREADS));
+            } else if ("Move Overhead".equalsIgnoreCase(name)) {
+                search.getTimeManager().setMoveOverhead(Integer.parseInt(value));
+            } else if ("Book File".equalsIgnoreCase(name)) {
+                setBook(value);
+            } else if ("Bitbase Path".equalsIgnoreCase(name)) {
+                setBitbases(value);
+            } else if (!"Ponder".equalsIgnoreCase(name)) {
+                send("info string Unknown option: " + name);
+            }
+        } catch (NumberFormatException e) {
+            send("info string Invalid value for " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Opens the book at the given path, closing any book already open.
+     */
+    private void setBook(String path) {
+        try {
+            if (book != null)
+                book.close();
+            book = null;
+
+            if (!path.isEmpty() && !"<empty>".equals(path))
+                book = new PolyglotBook(new File(path));
+        } catch (IOException e) {
+            send("info string Could not open book: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the bitbases in the given directory, closing any already open.
+     */
+    private void setBitbases(String path) {
+        try {
+            search.setBitbases(null);
+            if (bitbases != null)
+                bitbases.close();
+            bitbases = null;
+
+            if (!path.isEmpty() && !"<empty>".equals(path)) {
+                bitbases = new Bitbases(new File(path));
+                search.setBitbases(bitbases);
+                send("info string Loaded " + bitbases.size() + " bitbases");
+            }
+        } catch (IOException e) {
+            send("info string Could not open bitbases: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handles "position [startpos | fen &lt;fen&gt;] [moves &lt;move&gt;...]".
+     */
+    private void position(String command, int i) {
+        i = skipSpaces(command, i);
+        int end = tokenEnd(command, i);
+        int baseStart = i;
+        int baseEnd;
+
+        if (command.startsWith("startpos", i)) {
+            baseEnd = end;
+        } else if (command.startsWith("fen", i)) {
+            int movesIndex = command.indexOf(" moves", end);
+            baseEnd = movesIndex < 0 ? command.length() : movesIndex;
+        } else {
+            send("info string Invalid position: " + command);
+            return;
+        }
+
+        // Count how many moves carry on from the current position
+        String newBase = command.substring(baseStart, baseEnd).trim();
+        boolean sameBase = newBase.equals(base);
+        int kept = 0;
+
+        i = skipSpaces(command, baseEnd);
+        if (command.startsWith("moves", i))
+            i = skipSpaces(command, i + 5);
+        int movesStart = i;
+
+        if (sameBase) {
+            while (i < command.length() && kept < moveCount) {
+                end = tokenEnd(command, i);
+                if (!command.regionMatches(i, moveTokens[kept], 0, end - i) || moveTokens[kept].length() != end - i)
+                    break;
+                kept++;
+                i = skipSpaces(command, end);
+            }
+
+            while (moveCount > kept)
+                board.unmakeMove(moves[--moveCount]);
+        } else {
+            try {
+                if (newBase.equals("startpos"))
+                    Fen.read(board, Fen.START_POSITION);
+                else
+                    Fen.read(board, newBase, 3);
+            } catch (IllegalArgumentException e) {
+                send("info string " + e.getMessage());
+                base = "";
+                moveCount = 0;
+                Fen.read(board, Fen.START_POSITION);
+                return;
+            }
+
+            base = newBase;
+            moveCount = 0;
+            i = movesStart;
+        }
+
+        // Make only the moves that are new
+        while (i < command.length()) {
+            end = tokenEnd(command, i);
+            int move = parseMove(command, i, end);
+
+            if (move == Move.NONE) {
+                send("info string Illegal move: " + command.substring(i, end));
+                break;
+            }
+
+            if (moveCount == moves.length) {
+                moves = Arrays.copyOf(moves, moveCount * 2);
+                moveTokens = Arrays.copyOf(moveTokens, moveCount * 2);
+            }
+            board.makeMove(move);
+            moves[moveCount] = move;
+            moveTokens[moveCount++] = command.substring(i, end);
+
+            i = skipSpaces(command, end);
+        }
+    }
+
+    /**
+     * Finds the legal move matching a move in coordinate notation, e.g. "e2e4" or "e7e8q".
+     * @return the move, or {@link Move#NONE} if it isn't legal
+     */
+    private int parseMove(String command, int start, int end) {
+        if (end - start < 4 || end - start > 5)
+            return Move.NONE;
+
+        int from = tile(command.charAt(start), command.charAt(start + 1));
+        int to = tile(command.charAt(start + 2), command.charAt(start + 3));
+        int promotion = end - start == 5 ? Piece.getType(Piece.fromChar(command.charAt(start + 4))) : Piece.EMPTY;
+        if (from < 0 || to < 0)
+            return Move.NONE;
+
+        // Only the moving piece's moves are needed to find it
+        scratch.clear();
+        MoveGenerators.listLegalMoves(board, scratch, MoveGenerators.GEN_ALL, 1L << from);
+
+        for (int j = 0; j < scratch.size(); j++) {
+            int move = scratch.get(j);
+
+            if (Move.getTo(move) != to)
+                continue;
+            if (Move.isPromotion(move) ? Move.getPromotionType(move) == promotion : promotion == Piece.EMPTY)
+                return move;
+        }
+
+        return Move.NONE;
+    }
+
+    /**
+     * Handles "go" with any of its limits, starting the search on its own thread.
+     */
+    private void go(String command, int i) {
+        final SearchLimits limits = new SearchLimits();
+        long whiteTime = -1, blackTime = -1, whiteIncrement = 0, blackIncrement = 0;
+
+        try {
+            while ((i = skipSpaces(command, i)) < command.length()) {
+                int end = tokenEnd(command, i);
+                String token = command.substring(i, end);
+                i = end;
+
+                switch (token) {
+                    case "infinite":
+                        limits.setInfinite(true);
+                        continue;
+                    case "ponder":
+                        limits.setPonder(true);
+                        continue;
+                    default:
+                        break;
+                }
+
+                // Every other limit takes a number
+                i = skipSpaces(command, i);
+                end = tokenEnd(command, i);
+                if (i == end)
+                    break;
+                long value = Long.parseLong(command.substring(i, end));
+                i = end;
+
+                switch (token) {
+                    case "wtime": whiteTime = value; break;
+                    case "btime": blackTime = value; break;
+                    case "winc": whiteIncrement = value; break;
+                    case "binc": blackIncrement = value; break;
+                    case "movestogo": limits.setMovesToGo((int)value); break;
+                    case "movetime": limits.setMoveTime(value); break;
+                    case "nodes": limits.setNodes(value); break;
+                    case "depth": limits.setDepth((int)value); break;
+                    default: break;
+                }
+            }
+        } catch (NumberFormatException e) {
+            send("info string Invalid go command: " + command);
+        }
+
+        limits.setTime(whiteTime, blackTime);
+        limits.setIncrement(whiteIncrement, blackIncrement);
+
+        // Searches the GUI will stop itself are for analysis, so only play from the book otherwise
+        if (book != null && !limits.isInfinite() && !limits.isPonder()) {
+            int move = book.getWeightedMove(board, random);
+
+            if (move != Move.NONE) {
+                send("bestmove " + Move.toCoordinates(move));
+                return;
+            }
+        }
+
+        // Set up before the thread starts, so a "stop" or "ponderhit" right after this isn't lost
+        search.prepare(limits);
+        searchThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int best = search.search(limits);
+                int[] pv = search.getPrincipalVariation();
+
+                if (best == Move.NONE)
+                    send("bestmove 0000");
+                else if (pv.length > 1 && pv[0] == best)
+                    send("bestmove " + Move.toCoordinates(best) + " ponder " + Move.toCoordinates(pv[1]));
+                else
+                    send("bestmove " + Move.toCoordinates(best));
+            }
+        }, "uci-search");
+        searchThread.start();
+    }
+
+    /**
+     * Reports an iteration as an "info" line.
+     */
+    @Override
+    public void iterationComplete(int depth, int score, long nodes, long elapsed, int[] pv) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("info depth ").append(depth).append(" score ");
+
+        if (Math.abs(score) >= Search.MATE - Search.MAX_PLY) {
+            int plies = Search.MATE - Math.abs(score);
+            sb.append("mate ").append(score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2);
+        } else {
+            sb.append("cp ").append(score);
+        }
+
+        sb.append(" nodes ").append(nodes)
+            .append(" nps ").append(elapsed > 0 ? nodes * 1000 / elapsed : nodes)
+            .append(" time ").append(elapsed)
+            .append(" hashfull ").append(search.getTranspositionTable().hashfull())
+            .append(" pv");
+        for (int move : pv)
+            sb.append(' ').append(Move.toCoordinates(move));
+
+        send(sb.toString());
+    }
+
+    /**
+     * Stops the search and waits for it to report its move.
+     */
+    private void stopSearch() {
+        if (searchThread != null)
+            search.stop();
+
+        waitForSearch();
+    }
+
+    private void waitForSearch() {
+        if (searchThread == null)
+            return;
+
+        try {
+            searchThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        searchThread = null;
+    }
+
+    private void send(String message) {
+        synchronized (out) {
+            out.println(message);
+            out.flush();
+        }
+    }
+
+    private static int tile(char file, char rank) {
+        if (file < 'a' || file > 'h' || rank < '1' || rank > '8')
+            return -1;
+
+        return ('8' - rank) * 8 + (file - 'a');
+    }
+
+    private static int skipSpaces(String s, int i) {
+        while (i < s.length() && Character.isWhitespace(s.charAt(i)))
+            i++;
+
+        return i;
+    }
+
+    private static int tokenEnd(String s, int i) {
+        while (i < s.length() && !Character.isWhitespace(s.charAt(i)))
+            i++;
+
+        return i;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+}
@@ -0,0 +1,8 @@
+package com.jtulayan.main.uci;
+
+/** Launches the engine as a UCI engine over standard input and output. */
+public class UciLauncher {
+    public static void main(String[] args) {
+        new UciEngine(System.in, System.out).run();
+    }
+}